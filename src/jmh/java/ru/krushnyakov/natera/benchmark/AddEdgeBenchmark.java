@@ -0,0 +1,68 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+
+/**
+ * Single addEdge throughput on a growing graph, one operation is one edge
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AddEdgeBenchmark {
+
+    @Param
+    private BenchmarkGraphs.Factory factory;
+
+    @Param({ "1000000" })
+    private int vertexCount;
+
+    private List<Edge<Integer>> edges;
+
+    private Graph<Integer> graph;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generateEdges() {
+        edges = BenchmarkGraphs.Shape.RANDOM.edges(vertexCount, new Random(BenchmarkGraphs.SEED));
+    }
+
+    @Setup(Level.Iteration)
+    public void createGraph() {
+        graph = factory.get().createDirectedGraph();
+        next = 0;
+    }
+
+    @Benchmark
+    public Graph<Integer> addEdge() {
+        if (next == edges.size()) {
+            next = 0;
+        }
+        return graph.addEdge(edges.get(next++));
+    }
+
+}
@@ -0,0 +1,187 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.GraphFactory;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+
+/**
+ * Deterministic graph generators shared by the benchmarks
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public final class BenchmarkGraphs {
+
+    static final long SEED = 20190419L;
+
+    public enum Factory {
+
+        UNSYNCHRONIZED {
+            @Override
+            public GraphFactory get() {
+                return SimpleGraphLib.getGraphFactory();
+            }
+        },
+
+        SYNCHRONIZED {
+            @Override
+            public GraphFactory get() {
+                return SimpleGraphLib.getSynchronyzedGraphFactory();
+            }
+        },
+
+        CONCURRENT {
+            @Override
+            public GraphFactory get() {
+                return SimpleGraphLib.getConcurrentGraphFactory();
+            }
+        },
+
+        OFF_HEAP {
+            @Override
+            public GraphFactory get() {
+                return SimpleGraphLib.getOffHeapGraphFactory();
+            }
+        };
+
+        public abstract GraphFactory get();
+    }
+
+    public enum Shape {
+
+        /**
+         * Directed edges between uniformly chosen vertices, average out degree 4
+         */
+        RANDOM {
+            @Override
+            public List<Edge<Integer>> edges(int vertexCount, Random random) {
+                List<Edge<Integer>> edges = new ArrayList<>(vertexCount * 4);
+                for (int v = 0; v < vertexCount; v++) {
+                    edges.add(new DirectedEdge<>(v, (v + 1) % vertexCount, 1 + random.nextInt(100)));
+                }
+                for (int e = 0; e < vertexCount * 3; e++) {
+                    edges.add(new DirectedEdge<>(random.nextInt(vertexCount), random.nextInt(vertexCount),
+                            1 + random.nextInt(100)));
+                }
+                return edges;
+            }
+        },
+
+        /**
+         * {@link #RANDOM} with every edge of weight 1, searched breadth first
+         */
+        UNIT_RANDOM {
+            @Override
+            public List<Edge<Integer>> edges(int vertexCount, Random random) {
+                List<Edge<Integer>> edges = new ArrayList<>(vertexCount * 4);
+                for (int v = 0; v < vertexCount; v++) {
+                    edges.add(new DirectedEdge<>(v, (v + 1) % vertexCount));
+                }
+                for (int e = 0; e < vertexCount * 3; e++) {
+                    edges.add(new DirectedEdge<>(random.nextInt(vertexCount), random.nextInt(vertexCount)));
+                }
+                return edges;
+            }
+        },
+
+        /**
+         * Square lattice of undirected edges, road-like
+         */
+        GRID {
+            @Override
+            public List<Edge<Integer>> edges(int vertexCount, Random random) {
+                int side = (int) Math.ceil(Math.sqrt(vertexCount));
+                List<Edge<Integer>> edges = new ArrayList<>(vertexCount * 2);
+                for (int v = 0; v < vertexCount; v++) {
+                    if ((v + 1) % side != 0 && v + 1 < vertexCount) {
+                        edges.add(new UndirectedEdge<>(v, v + 1, 1 + random.nextInt(10)));
+                    }
+                    if (v + side < vertexCount) {
+                        edges.add(new UndirectedEdge<>(v, v + side, 1 + random.nextInt(10)));
+                    }
+                }
+                return edges;
+            }
+        },
+
+        /**
+         * https://en.wikipedia.org/wiki/Barab%C3%A1si%E2%80%93Albert_model with
+         * three undirected edges per new vertex
+         */
+        SCALE_FREE {
+            @Override
+            public List<Edge<Integer>> edges(int vertexCount, Random random) {
+                int perVertex = 3;
+                List<Edge<Integer>> edges = new ArrayList<>(vertexCount * perVertex);
+                int[] endpoints = new int[2 * perVertex * vertexCount];
+                int endpointCount = 0;
+                for (int v = 1; v < vertexCount; v++) {
+                    for (int i = 0; i < Math.min(v, perVertex); i++) {
+                        int target = endpointCount == 0 ? 0 : endpoints[random.nextInt(endpointCount)];
+                        edges.add(new UndirectedEdge<>(v, target, 1 + random.nextInt(100)));
+                        endpoints[endpointCount++] = v;
+                        endpoints[endpointCount++] = target;
+                    }
+                }
+                return edges;
+            }
+        },
+
+        /**
+         * Directed edges between uniformly chosen vertices, average out degree
+         * 1.5, one large strongly connected component among many small ones
+         */
+        SPARSE {
+            @Override
+            public List<Edge<Integer>> edges(int vertexCount, Random random) {
+                List<Edge<Integer>> edges = new ArrayList<>(vertexCount * 3 / 2);
+                for (int e = 0; e < vertexCount * 3 / 2; e++) {
+                    edges.add(new DirectedEdge<>(random.nextInt(vertexCount), random.nextInt(vertexCount),
+                            1 + random.nextInt(100)));
+                }
+                return edges;
+            }
+        };
+
+        public abstract List<Edge<Integer>> edges(int vertexCount, Random random);
+    }
+
+    private BenchmarkGraphs() {
+    }
+
+    public static Set<Integer> vertices(int vertexCount) {
+        Set<Integer> vertices = new HashSet<>(vertexCount * 4 / 3 + 1);
+        for (int v = 0; v < vertexCount; v++) {
+            vertices.add(v);
+        }
+        return vertices;
+    }
+
+    public static Graph<Integer> create(Factory factory, Shape shape, int vertexCount) {
+        return factory.get().createDirectedGraph(vertices(vertexCount),
+                new HashSet<>(shape.edges(vertexCount, new Random(SEED))));
+    }
+
+    /**
+     * @return pairs of random query vertices, sources in the even cells and
+     *         destinations in the odd ones
+     */
+    public static int[] queries(int vertexCount, int queryCount) {
+        Random random = new Random(SEED + 1);
+        int[] queries = new int[2 * queryCount];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = random.nextInt(vertexCount);
+        }
+        return queries;
+    }
+
+}
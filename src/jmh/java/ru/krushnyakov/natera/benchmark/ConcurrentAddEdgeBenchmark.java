@@ -0,0 +1,62 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Graph;
+
+/**
+ * addEdge throughput of many ingest threads sharing one graph, run with
+ * different thread counts (-t 1, -t 4, -t 16 ...)
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentAddEdgeBenchmark {
+
+    @Param({ "SYNCHRONIZED", "CONCURRENT" })
+    private BenchmarkGraphs.Factory factory;
+
+    @Param({ "1000000" })
+    private int vertexCount;
+
+    private Graph<Integer> graph;
+
+    @State(Scope.Thread)
+    public static class Ingest {
+
+        private final Random random = new Random();
+    }
+
+    @Setup(Level.Iteration)
+    public void createGraph() {
+        graph = factory.get().createDirectedGraph();
+    }
+
+    @Benchmark
+    public Graph<Integer> addEdge(Ingest ingest) {
+        return graph.addEdge(new DirectedEdge<>(ingest.random.nextInt(vertexCount),
+                ingest.random.nextInt(vertexCount), 1 + ingest.random.nextInt(100)));
+    }
+
+}
@@ -0,0 +1,88 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+
+/**
+ * Query throughput of a shared graph under contention. Run getPath with
+ * different thread counts (-t 1, -t 4, -t 16 ...) to see how it scales with
+ * cores; the mixed group adds a writer to three readers.
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConcurrentQueryBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param({ "SYNCHRONIZED", "CONCURRENT" })
+    private BenchmarkGraphs.Factory factory;
+
+    @Param({ "100000" })
+    private int vertexCount;
+
+    private Graph<Integer> graph;
+
+    private int[] queries;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private final Random random = new Random();
+
+        private int next = random.nextInt(QUERY_COUNT);
+    }
+
+    @Setup
+    public void setUp() {
+        graph = BenchmarkGraphs.create(factory, BenchmarkGraphs.Shape.GRID, vertexCount);
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPath(Cursor cursor) {
+        int query = 2 * (cursor.next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<Edge<Integer>> mixedGetPath(Cursor cursor) {
+        return getPath(cursor);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Graph<Integer> mixedAddEdge(Cursor cursor) {
+        return graph.addEdge(new DirectedEdge<>(cursor.random.nextInt(vertexCount),
+                cursor.random.nextInt(vertexCount), 1 + cursor.random.nextInt(100)));
+    }
+
+}
@@ -0,0 +1,79 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.ContractionHierarchy;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+
+/**
+ * Point to point queries of a contraction hierarchy against Dijkstra of the
+ * same graph, and the preprocessing they amortize
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ContractionHierarchyBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param({ "GRID" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "10000", "100000" })
+    private int vertexCount;
+
+    private Graph<Integer> graph;
+
+    private ContractionHierarchy<Integer> hierarchy;
+
+    private int[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = BenchmarkGraphs.create(BenchmarkGraphs.Factory.UNSYNCHRONIZED, shape, vertexCount);
+        hierarchy = new ContractionHierarchy<>(graph);
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPathHierarchy() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return hierarchy.getPath(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPathDijkstra() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public ContractionHierarchy<Integer> build() {
+        return new ContractionHierarchy<>(graph);
+    }
+
+}
@@ -0,0 +1,102 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.CsrGraph;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.ShortestPathTree;
+
+/**
+ * Parallel delta stepping against the sequential Dijkstra of the same snapshot.
+ * Speedup only shows on a machine with at least as many cores as threads.
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeltaSteppingBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 6;
+
+    @Param({ "RANDOM", "GRID" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "1000000" })
+    private int vertexCount;
+
+    @Param({ "1", "4", "16", "64" })
+    private int threads;
+
+    /**
+     * Bucket width, 0 for the graph default
+     */
+    @Param({ "0" })
+    private int delta;
+
+    private CsrGraph<Integer> graph;
+
+    private ForkJoinPool pool;
+
+    private int[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = (CsrGraph<Integer>) BenchmarkGraphs.create(BenchmarkGraphs.Factory.UNSYNCHRONIZED, shape, vertexCount)
+                .snapshot();
+        pool = new ForkJoinPool(threads);
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+        if (delta == 0) {
+            delta = graph.defaultDelta();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ShortestPathTree<Integer> pathsFromDijkstra() {
+        return graph.getPathsFrom(queries[2 * (next++ & (QUERY_COUNT - 1))]);
+    }
+
+    @Benchmark
+    public ShortestPathTree<Integer> pathsFromDeltaStepping() {
+        return graph.getPathsFrom(queries[2 * (next++ & (QUERY_COUNT - 1))], pool, delta);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPathDijkstra() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPathDeltaStepping() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1], pool, delta);
+    }
+
+}
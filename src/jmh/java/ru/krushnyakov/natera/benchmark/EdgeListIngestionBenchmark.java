@@ -0,0 +1,122 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.EdgeListReader;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.IngestionStatistics;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+
+/**
+ * Loading a CSV edge list into a graph with {@link EdgeListReader} against
+ * parsing it line by line, throughput is reported as the megabytesPerSecond
+ * and edgesPerSecond secondary results
+ *
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EdgeListIngestionBenchmark {
+
+    @Param({ "RANDOM" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "100000", "1000000" })
+    private int vertexCount;
+
+    @Param({ "1", "4" })
+    private int parallelism;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("edges", ".csv");
+        List<Edge<Integer>> edges = shape.edges(vertexCount, new Random(BenchmarkGraphs.SEED));
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Edge<Integer> edge : edges) {
+                writer.write(edge.getSource() + "," + edge.getDestination() + "," + edge.getWeight() + ","
+                        + (edge instanceof UndirectedEdge ? 0 : 1) + "\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public Graph<Integer> edgeListReader(Throughput throughput) throws IOException {
+        Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph();
+        throughput.record(new EdgeListReader<>(Integer::valueOf).parallelism(parallelism).read(file, graph));
+        return graph;
+    }
+
+    /**
+     * Only edgeListReader depends on the parallelism parameter
+     */
+
+    @Benchmark
+    public Graph<Integer> lineByLine() throws IOException {
+        Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                Integer source = Integer.valueOf(fields[0]);
+                Integer destination = Integer.valueOf(fields[1]);
+                int weight = Integer.parseInt(fields[2]);
+                graph.addEdge(fields[3].equals("1") ? new DirectedEdge<>(source, destination, weight)
+                        : new UndirectedEdge<>(source, destination, weight));
+            }
+        }
+        return graph;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Throughput {
+
+        public double megabytesPerSecond;
+
+        public double edgesPerSecond;
+
+        void record(IngestionStatistics statistics) {
+            megabytesPerSecond = statistics.getMegabytesPerSecond();
+            edgesPerSecond = statistics.getEdgesPerSecond();
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.PathStrategy;
+
+/**
+ * Point to point getPath latency between random vertices
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GetPathBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "1000", "100000", "1000000" })
+    private int vertexCount;
+
+    @Param
+    private PathStrategy strategy;
+
+    private Graph<Integer> graph;
+
+    private int[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = BenchmarkGraphs.create(BenchmarkGraphs.Factory.UNSYNCHRONIZED, shape, vertexCount);
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPath() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1], strategy);
+    }
+
+}
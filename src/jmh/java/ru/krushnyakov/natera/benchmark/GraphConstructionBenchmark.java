@@ -0,0 +1,125 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.GraphBuilder;
+
+/**
+ * Whole graph build time through the bulk constructor, addEdge and
+ * {@link GraphBuilder}, peak heap of every iteration is reported as the
+ * peakHeapMb secondary result
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphConstructionBenchmark {
+
+    @Param
+    private BenchmarkGraphs.Factory factory;
+
+    @Param
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "1000", "100000" })
+    private int vertexCount;
+
+    @Param({ "1", "4" })
+    private int parallelism;
+
+    private Set<Integer> vertices;
+
+    private List<Edge<Integer>> edges;
+
+    @Setup
+    public void setUp() {
+        vertices = BenchmarkGraphs.vertices(vertexCount);
+        edges = shape.edges(vertexCount, new Random(BenchmarkGraphs.SEED));
+    }
+
+    @Benchmark
+    public Graph<Integer> bulkConstructor(PeakHeap peakHeap) {
+        return peakHeap.record(factory.get().createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges)));
+    }
+
+    @Benchmark
+    public Graph<Integer> addEdges(PeakHeap peakHeap) {
+        Graph<Integer> graph = factory.get().createDirectedGraph();
+        for (Edge<Integer> edge : edges) {
+            graph.addEdge(edge);
+        }
+        return peakHeap.record(graph);
+    }
+
+    /**
+     * Only this benchmark depends on the parallelism parameter, narrow the other
+     * ones with -p parallelism=1
+     */
+
+    @Benchmark
+    public Graph<Integer> builder(PeakHeap peakHeap) {
+        GraphBuilder<Integer> builder = new GraphBuilder<Integer>().parallelism(parallelism)
+                .expectedEdges(edges.size()).addEdges(edges);
+        vertices.forEach(builder::addVertex);
+        return peakHeap.record(factory.get().createDirectedGraph(builder));
+    }
+
+    /**
+     * Peak heap usage in megabytes, the pools' peaks are reset before every
+     * iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PeakHeap {
+
+        public long peakHeapMb;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+            peakHeapMb = 0;
+        }
+
+        <T> T record(T result) {
+            long peak = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            peakHeapMb = Math.max(peakHeapMb, peak >> 20);
+            return result;
+        }
+
+    }
+
+}
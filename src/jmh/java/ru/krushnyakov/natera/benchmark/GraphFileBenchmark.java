@@ -0,0 +1,85 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.GraphFile;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.VertexSerializer;
+
+/**
+ * Time to the first answered query: opening a {@link GraphFile} against
+ * rebuilding the graph from its edges, the file is in the page cache
+ *
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphFileBenchmark {
+
+    @Param({ "GRID", "RANDOM" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "100000", "1000000" })
+    private int vertexCount;
+
+    private Set<Integer> vertices;
+
+    private List<Edge<Integer>> edges;
+
+    private Path file;
+
+    private int[] query;
+
+    @Setup
+    public void setUp() throws IOException {
+        vertices = BenchmarkGraphs.vertices(vertexCount);
+        edges = shape.edges(vertexCount, new Random(BenchmarkGraphs.SEED));
+        file = Files.createTempFile("graph", ".bin");
+        GraphFile.write(SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                new HashSet<>(edges)), file, VertexSerializer.integers());
+        query = BenchmarkGraphs.queries(vertexCount, 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> openAndQuery() throws IOException {
+        return GraphFile.open(file, VertexSerializer.integers()).getPath(query[0], query[1]);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> rebuildAndQuery() {
+        return SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges))
+                .getPath(query[0], query[1]);
+    }
+
+}
@@ -0,0 +1,87 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.IntGraph;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+
+/**
+ * getPath latency of an {@link IntGraph} against the boxed
+ * {@code Graph<Integer>} of the same edges
+ *
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntGraphBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param({ "RANDOM", "GRID" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "100000", "1000000" })
+    private int vertexCount;
+
+    private Graph<Integer> graph;
+
+    private IntGraph intGraph;
+
+    private int[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = BenchmarkGraphs.create(BenchmarkGraphs.Factory.UNSYNCHRONIZED, shape, vertexCount);
+        List<Edge<Integer>> edges = shape.edges(vertexCount, new Random(BenchmarkGraphs.SEED));
+        intGraph = edges.get(0).startsAt(edges.get(0).getDestination())
+                ? SimpleGraphLib.getGraphFactory().createIntUndirectedGraph()
+                : SimpleGraphLib.getGraphFactory().createIntDirectedGraph();
+        intGraph.addVertex(vertexCount - 1);
+        for (Edge<Integer> edge : edges) {
+            intGraph.addEdge(edge.getSource(), edge.getDestination(), edge.getWeight());
+        }
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> graph() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    public int[] intGraph() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return intGraph.getPath(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> intGraphAdapter() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return intGraph.asGraph().getPath(queries[query], queries[query + 1]);
+    }
+
+}
@@ -0,0 +1,70 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.LandmarkIndex;
+import ru.krushnyakov.natera.lib.LandmarkSelection;
+
+/**
+ * Point to point A* queries guided by landmark bounds, compare with
+ * {@link GetPathBenchmark} of the same graph
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LandmarkBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param({ "GRID", "RANDOM" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "100000" })
+    private int vertexCount;
+
+    @Param({ "4", "16" })
+    private int landmarkCount;
+
+    @Param
+    private LandmarkSelection selection;
+
+    private LandmarkIndex<Integer> index;
+
+    private int[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        index = new LandmarkIndex<>(BenchmarkGraphs.create(BenchmarkGraphs.Factory.UNSYNCHRONIZED, shape, vertexCount),
+                landmarkCount, selection);
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPath() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return index.getPath(queries[query], queries[query + 1]);
+    }
+
+}
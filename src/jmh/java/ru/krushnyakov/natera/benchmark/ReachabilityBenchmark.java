@@ -0,0 +1,90 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+
+/**
+ * getPath and isReachable between vertices of two disconnected copies of a
+ * graph, so that every query has no path, and isReachable against a path
+ * search between vertices of one copy
+ *
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReachabilityBenchmark {
+
+    private static final int QUERY_COUNT = 1 << 10;
+
+    @Param({ "RANDOM", "SPARSE" })
+    private BenchmarkGraphs.Shape shape;
+
+    @Param({ "1000", "100000" })
+    private int vertexCount;
+
+    @Param({ "UNSYNCHRONIZED" })
+    private BenchmarkGraphs.Factory factory;
+
+    private Graph<Integer> graph;
+
+    private int[] queries;
+
+    private int next;
+
+    @Setup
+    public void setUp() {
+        graph = BenchmarkGraphs.create(factory, shape, vertexCount);
+        for (Edge<Integer> edge : shape.edges(vertexCount, new Random(BenchmarkGraphs.SEED + 1))) {
+            graph.addEdge(new DirectedEdge<>(edge.getSource() + vertexCount, edge.getDestination() + vertexCount,
+                    edge.getWeight()));
+        }
+        queries = BenchmarkGraphs.queries(vertexCount, QUERY_COUNT);
+    }
+
+    @Benchmark
+    public List<Edge<Integer>> getPathUnreachable() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.getPath(queries[query], queries[query + 1] + vertexCount);
+    }
+
+    @Benchmark
+    public boolean isReachableUnreachable() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.isReachable(queries[query], queries[query + 1] + vertexCount);
+    }
+
+    @Benchmark
+    public boolean isReachable() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return graph.isReachable(queries[query], queries[query + 1]);
+    }
+
+    @Benchmark
+    public boolean searchReachable() {
+        int query = 2 * (next++ & (QUERY_COUNT - 1));
+        return !graph.getPath(queries[query], queries[query + 1]).isEmpty();
+    }
+
+}
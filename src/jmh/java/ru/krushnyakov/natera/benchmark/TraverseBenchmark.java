@@ -0,0 +1,68 @@
+package ru.krushnyakov.natera.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ru.krushnyakov.natera.lib.Graph;
+
+/**
+ * Full graph traverse passes per second
+ * 
+ * @author kkrushnyakov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraverseBenchmark {
+
+    @Param
+    private BenchmarkGraphs.Factory factory;
+
+    @Param({ "1000", "100000", "1000000" })
+    private int vertexCount;
+
+    private Graph<Integer> graph;
+
+    @Setup
+    public void setUp() {
+        graph = BenchmarkGraphs.create(factory, BenchmarkGraphs.Shape.RANDOM, vertexCount);
+    }
+
+    @Benchmark
+    public List<?> traverse() {
+        return graph.traverse(v -> v + 1);
+    }
+
+    @Benchmark
+    public List<?> traverseParallel() {
+        return graph.traverse(v -> v + 1, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public void forEachVertex(Blackhole blackhole) {
+        graph.forEachVertex(blackhole::consume);
+    }
+
+    @Benchmark
+    public long parallelVertexStream() {
+        return graph.vertexStream().parallel().mapToLong(Integer::longValue).sum();
+    }
+
+}
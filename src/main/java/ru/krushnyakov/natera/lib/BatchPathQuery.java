@@ -0,0 +1,92 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs batches of point to point getPath queries in parallel on a
+ * {@link ForkJoinPool}. Graphs keep search buffers per thread, so every worker
+ * reuses its own buffers across the queries it takes. Graphs of the
+ * synchronized factory answer the queries under their shared read lock, so
+ * workers don't serialize on it.
+ * 
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public class BatchPathQuery<V> {
+
+    /**
+     * Queries one worker takes without further splitting
+     */
+    private static final int QUERIES_PER_TASK = 4;
+
+    private final Graph<V> graph;
+
+    private final ForkJoinPool pool;
+
+    public BatchPathQuery(Graph<V> graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public BatchPathQuery(Graph<V> graph, ForkJoinPool pool) {
+        if (graph == null || pool == null) {
+            throw new IllegalArgumentException("Graph and pool can't be null!");
+        }
+        this.graph = graph;
+        this.pool = pool;
+    }
+
+    /**
+     * @param pairs (source, destination) vertices of the queries
+     * @return paths in the order of the pairs
+     */
+
+    public List<List<Edge<V>>> getPaths(List<Map.Entry<V, V>> pairs) {
+        if (pairs == null) {
+            throw new IllegalArgumentException("Vertex pairs can't be null!");
+        }
+        // workers only set their own slots, so the list is never resized
+        List<List<Edge<V>>> paths = new ArrayList<>(Collections.nCopies(pairs.size(), null));
+        pool.invoke(new PathsTask(new ArrayList<>(pairs), paths, 0, paths.size()));
+        return paths;
+    }
+
+    private final class PathsTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Map.Entry<V, V>> pairs;
+
+        private final List<List<Edge<V>>> paths;
+
+        private final int from;
+
+        private final int to;
+
+        PathsTask(List<Map.Entry<V, V>> pairs, List<List<Edge<V>>> paths, int from, int to) {
+            this.pairs = pairs;
+            this.paths = paths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= QUERIES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    paths.set(i, graph.getPath(pairs.get(i).getKey(), pairs.get(i).getValue()));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PathsTask(pairs, paths, from, middle), new PathsTask(pairs, paths, middle, to));
+        }
+
+    }
+
+}
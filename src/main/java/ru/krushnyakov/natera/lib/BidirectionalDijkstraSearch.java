@@ -0,0 +1,187 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dijkstra's algorithm run from the source along outgoing edges and from the
+ * destination along incoming edges at the same time. The side with the closer
+ * frontier is expanded first, the search stops once the frontiers together
+ * can't improve the best meeting found so far.
+ * 
+ * https://en.wikipedia.org/wiki/Bidirectional_search
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class BidirectionalDijkstraSearch<V> {
+
+    private final Map<V, ? extends Map<V, Edge<V>>> lightestEdges;
+
+    private final Map<V, ? extends Collection<Edge<V>>> incomingEdges;
+
+    private final Side<V> forward = new Side<>();
+
+    private final Side<V> backward = new Side<>();
+
+    private int bestDistance = Integer.MAX_VALUE;
+
+    private V meetingVertex;
+
+    /**
+     * @param lightestEdges lightest edge for every (from, to) pair of adjacent
+     *                      vertices
+     * @param incomingEdges edges every vertex can be entered by
+     */
+
+    BidirectionalDijkstraSearch(Map<V, ? extends Map<V, Edge<V>>> lightestEdges,
+            Map<V, ? extends Collection<Edge<V>>> incomingEdges) {
+        this.lightestEdges = lightestEdges;
+        this.incomingEdges = incomingEdges;
+    }
+
+    /**
+     * @param sourceVertex
+     * @param destinationVertex
+     * @return List of edges contained in the result path, empty if destination
+     *         is unreachable
+     */
+
+    List<Edge<V>> findPath(V sourceVertex, V destinationVertex) {
+        forward.reach(sourceVertex, 0, -1, null);
+        backward.reach(destinationVertex, 0, -1, null);
+
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            long frontiers = (long) forward.heap.peekKey() + backward.heap.peekKey();
+            if (frontiers >= bestDistance) {
+                break;
+            }
+            if (forward.heap.peekKey() <= backward.heap.peekKey()) {
+                expandForward();
+            } else {
+                expandBackward();
+            }
+        }
+        if (meetingVertex == null) {
+            return new ArrayList<>();
+        }
+
+        List<Edge<V>> result = new ArrayList<>();
+        for (int slot = forward.slots.get(meetingVertex); forward.parentSlots[slot] >= 0; slot = forward.parentSlots[slot]) {
+            result.add(forward.parentEdge(slot));
+        }
+        Collections.reverse(result);
+        for (int slot = backward.slots.get(meetingVertex); backward.parentSlots[slot] >= 0; slot = backward.parentSlots[slot]) {
+            result.add(backward.parentEdge(slot));
+        }
+        return result;
+    }
+
+    private void expandForward() {
+        int slot = forward.heap.pollMin();
+        V vertex = forward.slotVertices.get(slot);
+        Map<V, Edge<V>> neighbours = lightestEdges.get(vertex);
+        if (neighbours == null) {
+            return;
+        }
+        int distance = forward.distances[slot];
+        for (Map.Entry<V, Edge<V>> neighbour : neighbours.entrySet()) {
+            int candidate = distance + neighbour.getValue().getWeight();
+            if (candidate >= 0) {
+                meet(neighbour.getKey(), forward.reach(neighbour.getKey(), candidate, slot, neighbour.getValue()),
+                        backward);
+            }
+        }
+    }
+
+    private void expandBackward() {
+        int slot = backward.heap.pollMin();
+        V vertex = backward.slotVertices.get(slot);
+        Collection<Edge<V>> edges = incomingEdges.get(vertex);
+        if (edges == null) {
+            return;
+        }
+        int distance = backward.distances[slot];
+        for (Edge<V> edge : edges) {
+            int candidate = distance + edge.getWeight();
+            if (candidate >= 0) {
+                V predecessor = edge.getOtherVertex(vertex);
+                meet(predecessor, backward.reach(predecessor, candidate, slot, edge), forward);
+            }
+        }
+    }
+
+    private void meet(V vertex, int distance, Side<V> otherSide) {
+        Integer otherSlot = otherSide.slots.get(vertex);
+        if (otherSlot == null) {
+            return;
+        }
+        long total = (long) distance + otherSide.distances[otherSlot];
+        if (total < bestDistance) {
+            bestDistance = (int) total;
+            meetingVertex = vertex;
+        }
+    }
+
+    private static final class Side<V> {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final Map<V, Integer> slots = new HashMap<>();
+
+        private final List<V> slotVertices = new ArrayList<>();
+
+        private final IndexedMinHeap heap = new IndexedMinHeap(INITIAL_CAPACITY);
+
+        private int[] distances = new int[INITIAL_CAPACITY];
+
+        private int[] parentSlots = new int[INITIAL_CAPACITY];
+
+        private Object[] parentEdges = new Object[INITIAL_CAPACITY];
+
+        /**
+         * Relaxes vertex with the distance reached through parentEdge
+         * 
+         * @return resulting distance of the vertex
+         */
+
+        int reach(V vertex, int distance, int parentSlot, Edge<V> parentEdge) {
+            Integer known = slots.get(vertex);
+            int slot;
+            if (known == null) {
+                slot = slotVertices.size();
+                if (slot == distances.length) {
+                    int capacity = slot * 2;
+                    distances = Arrays.copyOf(distances, capacity);
+                    parentSlots = Arrays.copyOf(parentSlots, capacity);
+                    parentEdges = Arrays.copyOf(parentEdges, capacity);
+                }
+                slots.put(vertex, slot);
+                slotVertices.add(vertex);
+            } else {
+                slot = known;
+                if (distances[slot] <= distance) {
+                    return distances[slot];
+                }
+            }
+            distances[slot] = distance;
+            parentSlots[slot] = parentSlot;
+            parentEdges[slot] = parentEdge;
+            heap.insertOrDecrease(slot, distance);
+            return distance;
+        }
+
+        @SuppressWarnings("unchecked")
+        Edge<V> parentEdge(int slot) {
+            return (Edge<V>) parentEdges[slot];
+        }
+
+    }
+
+}
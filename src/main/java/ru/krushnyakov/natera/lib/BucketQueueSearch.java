@@ -0,0 +1,144 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shortest path search for graphs with small integer weights. With weights up
+ * to C tentative distances of the queued vertices span at most C + 1 values, so
+ * Dial's circular array of C + 1 buckets replaces the heap and every operation
+ * is O(1). Unit weight graphs are searched by plain breadth first search, which
+ * stops as soon as the destination is discovered.
+ *
+ * https://en.wikipedia.org/wiki/Bucket_queue
+ * https://en.wikipedia.org/wiki/Breadth-first_search
+ *
+ * @author kkrushnyakov
+ *
+ */
+final class BucketQueueSearch {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private BucketQueueSearch() {
+    }
+
+    /**
+     * @param lightestEdges     lightest edge for every (from, to) pair of
+     *                          adjacent vertices
+     * @param context           search buffers of the query
+     * @param sourceVertex
+     * @param destinationVertex
+     * @param maxWeight         upper bound of the edge weights
+     * @return List of edges contained in the result path, empty if destination
+     *         is unreachable, null if an edge heavier than maxWeight was met
+     */
+
+    static <V> List<Edge<V>> findPath(Map<V, ? extends Map<V, Edge<V>>> lightestEdges, PathQueryContext context,
+            V sourceVertex, V destinationVertex, int maxWeight) {
+        context.begin();
+        int sourceSlot = context.slotOf(sourceVertex);
+        context.distances[sourceSlot] = 0;
+        return maxWeight <= 1 ? breadthFirst(lightestEdges, context, sourceSlot, destinationVertex)
+                : dial(lightestEdges, context, sourceSlot, destinationVertex, maxWeight);
+    }
+
+    private static <V> List<Edge<V>> breadthFirst(Map<V, ? extends Map<V, Edge<V>>> lightestEdges,
+            PathQueryContext context, int sourceSlot, V destinationVertex) {
+        int head = 0;
+        int tail = 0;
+        context.fifo[tail++] = sourceSlot;
+        while (head < tail) {
+            int slot = context.fifo[head++];
+            Map<V, Edge<V>> neighbours = lightestEdges.get(context.<V>vertexAt(slot));
+            if (neighbours == null) {
+                continue;
+            }
+            for (Map.Entry<V, Edge<V>> neighbour : neighbours.entrySet()) {
+                if (neighbour.getValue().getWeight() != 1) {
+                    return null;
+                }
+                int neighbourSlot = context.slotOf(neighbour.getKey());
+                if (context.distances[neighbourSlot] != Integer.MAX_VALUE) {
+                    continue;
+                }
+                context.distances[neighbourSlot] = context.distances[slot] + 1;
+                context.parents[neighbourSlot] = slot;
+                context.parentEdges[neighbourSlot] = neighbour.getValue();
+                if (neighbour.getKey().equals(destinationVertex)) {
+                    return context.pathTo(neighbourSlot);
+                }
+                if (tail == context.fifo.length) {
+                    context.fifo = Arrays.copyOf(context.fifo, tail * 2);
+                }
+                context.fifo[tail++] = neighbourSlot;
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static <V> List<Edge<V>> dial(Map<V, ? extends Map<V, Edge<V>>> lightestEdges, PathQueryContext context,
+            int sourceSlot, V destinationVertex, int maxWeight) {
+        int bucketCount = maxWeight + 1;
+        if (context.buckets.length != bucketCount) {
+            context.buckets = new int[bucketCount][INITIAL_CAPACITY];
+            context.bucketSizes = new int[bucketCount];
+        }
+        int[][] buckets = context.buckets;
+        int[] bucketSizes = context.bucketSizes;
+        int queued = 0;
+        enqueue(buckets, bucketSizes, sourceSlot, 0);
+        queued++;
+
+        for (int current = 0; queued > 0; current++) {
+            int bucket = current % bucketCount;
+            while (bucketSizes[bucket] > 0) {
+                int slot = buckets[bucket][--bucketSizes[bucket]];
+                queued--;
+                if (context.distances[slot] != current) {
+                    continue;
+                }
+                V vertex = context.vertexAt(slot);
+                if (vertex.equals(destinationVertex)) {
+                    Arrays.fill(bucketSizes, 0);
+                    return context.pathTo(slot);
+                }
+                Map<V, Edge<V>> neighbours = lightestEdges.get(vertex);
+                if (neighbours == null) {
+                    continue;
+                }
+                for (Map.Entry<V, Edge<V>> neighbour : neighbours.entrySet()) {
+                    Edge<V> edge = neighbour.getValue();
+                    if (edge.getWeight() > maxWeight) {
+                        Arrays.fill(bucketSizes, 0);
+                        return null;
+                    }
+                    int candidate = current + edge.getWeight();
+                    if (candidate < 0) {
+                        continue;
+                    }
+                    int neighbourSlot = context.slotOf(neighbour.getKey());
+                    if (candidate < context.distances[neighbourSlot]) {
+                        context.distances[neighbourSlot] = candidate;
+                        context.parents[neighbourSlot] = slot;
+                        context.parentEdges[neighbourSlot] = edge;
+                        enqueue(buckets, bucketSizes, neighbourSlot, candidate);
+                        queued++;
+                    }
+                }
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    private static void enqueue(int[][] buckets, int[] bucketSizes, int slot, int distance) {
+        int bucket = distance % buckets.length;
+        if (bucketSizes[bucket] == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], bucketSizes[bucket] * 2);
+        }
+        buckets[bucket][bucketSizes[bucket]++] = slot;
+    }
+
+}
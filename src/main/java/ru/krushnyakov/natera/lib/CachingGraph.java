@@ -0,0 +1,261 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Graph decorator memoizing getPath results in a bounded LRU cache. Every
+ * cached path remembers the {@link Graph#getVersion()} it was computed at and is
+ * served only while the graph stays at that version, so a stale path is never
+ * returned. The cache is safe for concurrent use, thread safety of the graph
+ * itself comes from the decorated one.
+ * 
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public class CachingGraph<V> implements Graph<V> {
+
+    private final Graph<V> graph;
+
+    private final Map<PathKey<V>, CachedPath<V>> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final InFlightPathQueries<V> inFlightQueries = new InFlightPathQueries<>(this);
+
+    /**
+     * @param graph        decorated graph
+     * @param maximumSize  maximum number of cached paths, least recently used
+     *                     ones are evicted first
+     */
+
+    public CachingGraph(Graph<V> graph, int maximumSize) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph can't be null!");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive!");
+        }
+        this.graph = graph;
+        this.cache = new LinkedHashMap<PathKey<V>, CachedPath<V>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PathKey<V>, CachedPath<V>> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public Graph<V> addVertex(V vertex) {
+        graph.addVertex(vertex);
+        return this;
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        graph.addEdge(edge);
+        return this;
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        return cachedPath(sourceVertex, destinationVertex, () -> graph.getPath(sourceVertex, destinationVertex));
+    }
+
+    /**
+     * Paths of every strategy have the same weight, so cached path is served
+     * whichever strategy computed it
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        return cachedPath(sourceVertex, destinationVertex,
+                () -> graph.getPath(sourceVertex, destinationVertex, strategy));
+    }
+
+    /**
+     * Identical queries missing the cache at the same time share one search
+     */
+
+    @Override
+    public CompletableFuture<List<Edge<V>>> getPathAsync(V sourceVertex, V destinationVertex, Executor executor) {
+        return inFlightQueries.getPath(sourceVertex, destinationVertex, executor);
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathQueryContext context) {
+        return cachedPath(sourceVertex, destinationVertex,
+                () -> graph.getPath(sourceVertex, destinationVertex, context));
+    }
+
+    private List<Edge<V>> cachedPath(V sourceVertex, V destinationVertex, Supplier<List<Edge<V>>> search) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        PathKey<V> key = new PathKey<>(sourceVertex, destinationVertex);
+        long version = graph.getVersion();
+        CachedPath<V> cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null && cached.version == version) {
+            hits.increment();
+            return new ArrayList<>(cached.path);
+        }
+        misses.increment();
+        List<Edge<V>> path = search.get();
+        synchronized (cache) {
+            cache.put(key, new CachedPath<>(version, new ArrayList<>(path)));
+        }
+        return path;
+    }
+
+    /**
+     * Heuristic searches are passed through, the cache is not consulted
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+        return graph.getPath(sourceVertex, destinationVertex, heuristic);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        return graph.getPathsFrom(sourceVertex);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex, PathStrategy strategy) {
+        return graph.getPathsFrom(sourceVertex, strategy);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        return graph.getPaths(sourceVertex, destinationVertices);
+    }
+
+    @Override
+    public boolean isReachable(V sourceVertex, V destinationVertex) {
+        return graph.isReachable(sourceVertex, destinationVertex);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function) {
+        return graph.traverse(function);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function, int parallelism) {
+        return graph.traverse(function, parallelism);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function, ForkJoinPool pool) {
+        return graph.traverse(function, pool);
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super V> action) {
+        graph.forEachVertex(action);
+    }
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<V>> action) {
+        graph.forEachEdge(action);
+    }
+
+    @Override
+    public Stream<V> vertexStream() {
+        return graph.vertexStream();
+    }
+
+    @Override
+    public Graph<V> snapshot() {
+        return graph.snapshot();
+    }
+
+    @Override
+    public long getVersion() {
+        return graph.getVersion();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public int getCachedPathCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static final class PathKey<V> {
+
+        private final V source;
+
+        private final V destination;
+
+        PathKey(V source, V destination) {
+            this.source = source;
+            this.destination = destination;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + destination.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof PathKey))
+                return false;
+            PathKey<?> other = (PathKey<?>) obj;
+            return source.equals(other.source) && destination.equals(other.destination);
+        }
+
+    }
+
+    private static final class CachedPath<V> {
+
+        private final long version;
+
+        private final List<Edge<V>> path;
+
+        CachedPath(long version, List<Edge<V>> path) {
+            this.version = version;
+            this.path = path;
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * 
+ */
+package ru.krushnyakov.natera.lib;
+
+import java.util.Set;
+
+/**
+ * Wraps graphs of another factory into {@link CachingGraph} decorators
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public class CachingGraphFactory implements GraphFactory {
+
+    private final GraphFactory graphFactory;
+
+    private final int cacheSize;
+
+    /**
+     * @param graphFactory factory of the decorated graphs, defines their thread
+     *                     safety
+     * @param cacheSize    maximum number of cached paths per graph
+     */
+
+    public CachingGraphFactory(GraphFactory graphFactory, int cacheSize) {
+        if (graphFactory == null) {
+            throw new IllegalArgumentException("Graph factory can't be null!");
+        }
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive!");
+        }
+        this.graphFactory = graphFactory;
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public <V> CachingGraph<V> createUndirectedGraph() {
+        return new CachingGraph<V>(graphFactory.createUndirectedGraph(), cacheSize);
+    }
+
+    @Override
+    public <V> CachingGraph<V> createUndirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        return new CachingGraph<V>(graphFactory.createUndirectedGraph(vertices, edges), cacheSize);
+    }
+
+    @Override
+    public <V> CachingGraph<V> createDirectedGraph() {
+        return new CachingGraph<V>(graphFactory.createDirectedGraph(), cacheSize);
+    }
+
+    @Override
+    public <V> CachingGraph<V> createDirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        return new CachingGraph<V>(graphFactory.createDirectedGraph(vertices, edges), cacheSize);
+    }
+
+    @Override
+    public <V> CachingGraph<V> createUndirectedGraph(GraphBuilder<V> builder) {
+        return new CachingGraph<V>(graphFactory.createUndirectedGraph(builder), cacheSize);
+    }
+
+    @Override
+    public <V> CachingGraph<V> createDirectedGraph(GraphBuilder<V> builder) {
+        return new CachingGraph<V>(graphFactory.createDirectedGraph(builder), cacheSize);
+    }
+
+}
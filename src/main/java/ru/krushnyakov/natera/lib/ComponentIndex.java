@@ -0,0 +1,85 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * https://en.wikipedia.org/wiki/Disjoint-set_data_structure of the vertices
+ * joined by edges, ignoring edge directions. Union by size keeps trees
+ * logarithmic, so finds don't compress paths and don't write: queries may run
+ * in parallel with each other, not with unions.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class ComponentIndex<V> {
+
+    private final Map<V, V> parents;
+
+    /**
+     * Vertex count of the component of every root
+     */
+    private final Map<V, Integer> sizes = new HashMap<>();
+
+    private int componentCount;
+
+    ComponentIndex() {
+        this.parents = new HashMap<>();
+    }
+
+    ComponentIndex(int vertexCount) {
+        this.parents = new HashMap<>(vertexCount * 4 / 3 + 1);
+    }
+
+    void add(V vertex) {
+        if (!parents.containsKey(vertex)) {
+            parents.put(vertex, vertex);
+            sizes.put(vertex, 1);
+            componentCount++;
+        }
+    }
+
+    void union(V vertexA, V vertexB) {
+        add(vertexA);
+        add(vertexB);
+        V rootA = find(vertexA);
+        V rootB = find(vertexB);
+        if (rootA.equals(rootB)) {
+            return;
+        }
+        int sizeA = sizes.get(rootA);
+        int sizeB = sizes.get(rootB);
+        if (sizeA < sizeB) {
+            V root = rootA;
+            rootA = rootB;
+            rootB = root;
+        }
+        parents.put(rootB, rootA);
+        sizes.put(rootA, sizeA + sizeB);
+        sizes.remove(rootB);
+        componentCount--;
+    }
+
+    /**
+     * @return true if both vertices are known and joined by edges
+     */
+
+    boolean connected(V vertexA, V vertexB) {
+        return parents.containsKey(vertexA) && parents.containsKey(vertexB)
+                && find(vertexA).equals(find(vertexB));
+    }
+
+    int componentCount() {
+        return componentCount;
+    }
+
+    private V find(V vertex) {
+        V current = vertex;
+        for (V parent = parents.get(current); !parent.equals(current); parent = parents.get(current)) {
+            current = parent;
+        }
+        return current;
+    }
+
+}
@@ -0,0 +1,105 @@
+/**
+ * 
+ */
+package ru.krushnyakov.natera.lib;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+
+/**
+ * Directed graph safe for concurrent use without a global lock. Vertices,
+ * edges and adjacency live in {@link ConcurrentHashMap}s, so writers only
+ * contend when they touch the same vertex.
+ * 
+ * Queries see a weakly consistent view: every edge added before the query
+ * started is visible, edges added concurrently may or may not be, and a
+ * returned path only consists of edges which were present in the graph.
+ * 
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public class ConcurrentDirectedGraph<V> extends DirectedGraph<V> {
+
+    private final BinaryOperator<Edge<V>> lighterEdge = (e1, e2) -> e2.getWeight() < e1.getWeight() ? e2 : e1;
+
+    public ConcurrentDirectedGraph() {
+        super();
+        this.vertices = ConcurrentHashMap.newKeySet();
+        this.edges = ConcurrentHashMap.newKeySet();
+        this.outgoingEdges = new ConcurrentHashMap<>();
+        this.incomingEdges = new ConcurrentHashMap<>();
+        this.lightestEdges = new ConcurrentHashMap<>();
+        // lock free addEdge can't keep the union-find consistent
+        this.components = null;
+    }
+
+    public ConcurrentDirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        this();
+        if (vertices == null || edges == null) {
+            throw new IllegalArgumentException("Edges and Verticles can't be null!");
+        }
+        this.vertices.addAll(vertices);
+        edges.forEach(this::addEdge);
+    }
+
+    ConcurrentDirectedGraph(GraphBuilder.Adjacency<V> adjacency) {
+        super(adjacency);
+    }
+
+    @Override
+    public Graph<V> addVertex(V vertex) {
+        vertices.add(vertex);
+        version.incrementAndGet();
+        return this;
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        vertices.add(edge.getSource());
+        vertices.add(edge.getDestination());
+        indexEdge(edge.getSource(), edge.getDestination(), edge);
+        if (edge.startsAt(edge.getDestination())) {
+            indexEdge(edge.getDestination(), edge.getSource(), edge);
+        }
+        edges.add(edge);
+        maxEdgeWeight.accumulateAndGet(edge.getWeight(), Math::max);
+        version.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Copies a consistent subset of the concurrently changing adjacency before
+     * freezing it
+     */
+
+    @Override
+    public Graph<V> snapshot() {
+        Set<V> frozenVertices = new HashSet<>(vertices);
+        Map<V, Map<V, Edge<V>>> frozenEdges = new HashMap<>();
+        frozenVertices.forEach(v -> {
+            Map<V, Edge<V>> neighbours = lightestEdges.get(v);
+            if (neighbours != null) {
+                Map<V, Edge<V>> frozenNeighbours = new HashMap<>();
+                neighbours.forEach((neighbour, edge) -> {
+                    if (frozenVertices.contains(neighbour)) {
+                        frozenNeighbours.put(neighbour, edge);
+                    }
+                });
+                frozenEdges.put(v, frozenNeighbours);
+            }
+        });
+        return new CsrGraph<>(frozenVertices, frozenEdges);
+    }
+
+    private void indexEdge(V from, V to, Edge<V> edge) {
+        outgoingEdges.computeIfAbsent(from, v -> ConcurrentHashMap.newKeySet()).add(edge);
+        incomingEdges.computeIfAbsent(to, v -> ConcurrentHashMap.newKeySet()).add(edge);
+        lightestEdges.computeIfAbsent(from, v -> new ConcurrentHashMap<>()).merge(to, edge, lighterEdge);
+    }
+
+}
@@ -0,0 +1,52 @@
+/**
+ * 
+ */
+package ru.krushnyakov.natera.lib;
+
+import java.util.Set;
+
+/**
+ * Produces graphs for concurrent writers and readers without a global lock
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public class ConcurrentGraphFactory implements GraphFactory {
+
+    @Override
+    public <V> Graph<V> createUndirectedGraph() {
+        return new ConcurrentUndirectedGraph<V>();
+    }
+
+    @Override
+    public <V> Graph<V> createUndirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        return new ConcurrentUndirectedGraph<V>(vertices, edges);
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph() {
+        return new ConcurrentDirectedGraph<V>();
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        return new ConcurrentDirectedGraph<V>(vertices, edges);
+    }
+
+    @Override
+    public <V> Graph<V> createUndirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return new ConcurrentUndirectedGraph<V>(builder);
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return new ConcurrentDirectedGraph<V>(builder.build(false, true));
+    }
+
+}
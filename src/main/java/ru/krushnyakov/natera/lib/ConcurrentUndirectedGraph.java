@@ -0,0 +1,39 @@
+/**
+ * 
+ */
+package ru.krushnyakov.natera.lib;
+
+import java.util.Set;
+
+/**
+ * Undirected flavour of {@link ConcurrentDirectedGraph}
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public class ConcurrentUndirectedGraph<V> extends ConcurrentDirectedGraph<V> {
+
+    public ConcurrentUndirectedGraph() {
+        super();
+    }
+
+    public ConcurrentUndirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        super(vertices, edges);
+        if (edges.stream().anyMatch(e -> e.getClass() != UndirectedEdge.class))
+            throw new IllegalArgumentException("Can initialize undirected graph only with undirected edges!");
+    }
+
+    ConcurrentUndirectedGraph(GraphBuilder<V> builder) {
+        super(builder.build(true, true));
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        if (!(edge instanceof UndirectedEdge)) {
+            throw new IllegalArgumentException("Only undirected edges are possible in undirected graph!");
+        }
+        super.addEdge(edge);
+        return this;
+    }
+
+}
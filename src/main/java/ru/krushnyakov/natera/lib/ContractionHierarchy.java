@@ -0,0 +1,586 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Preprocessed point to point index of a frozen graph. Vertices are contracted
+ * one by one in the order of their edge difference, shortcut edges preserve
+ * the distances between the remaining vertices. Queries run a bidirectional
+ * Dijkstra going up the hierarchy only, which settles a few hundred vertices
+ * even on large road-like graphs. Shortcuts of the found path are unpacked
+ * back into the original edges.
+ *
+ * https://en.wikipedia.org/wiki/Contraction_hierarchies
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public final class ContractionHierarchy<V> {
+
+    /**
+     * Vertices a witness search settles before giving up and adding the
+     * shortcut, which is then possibly superfluous but never wrong
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 256;
+
+    /**
+     * Settle limit of the witness searches estimating priorities, which only
+     * have to order the vertices roughly
+     */
+    private static final int PRIORITY_SETTLE_LIMIT = 32;
+
+    private final CsrGraph<V> graph;
+
+    private final long version;
+
+    private final int shortcutCount;
+
+    private final int[] edgeFrom;
+
+    private final int[] edgeTo;
+
+    private final int[] edgeWeights;
+
+    /**
+     * Slot of an original edge, first half of a shortcut
+     */
+    private final int[] edgeFirst;
+
+    /**
+     * -1 for an original edge, second half of a shortcut
+     */
+    private final int[] edgeSecond;
+
+    private final int[] upOffsets;
+
+    private final int[] upEdges;
+
+    private final int[] downOffsets;
+
+    private final int[] downEdges;
+
+    private final ThreadLocal<Query> queries;
+
+    /**
+     * Builds the hierarchy of the current state of the graph, later changes of
+     * the graph aren't seen by it
+     *
+     * @param graph
+     */
+
+    public ContractionHierarchy(Graph<V> graph) {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph can't be null!");
+        }
+        // taken before the snapshot, so a concurrent change can only make it outdated
+        this.version = graph.getVersion();
+        this.graph = CsrGraph.copyOf(graph.snapshot());
+
+        Builder builder = new Builder(this.graph);
+        builder.contractAll();
+        int edgeCount = builder.edgeCount;
+        this.shortcutCount = edgeCount - this.graph.edgeCount();
+        this.edgeFrom = Arrays.copyOf(builder.edgeFrom, edgeCount);
+        this.edgeTo = Arrays.copyOf(builder.edgeTo, edgeCount);
+        this.edgeWeights = Arrays.copyOf(builder.edgeWeights, edgeCount);
+        this.edgeFirst = Arrays.copyOf(builder.edgeFirst, edgeCount);
+        this.edgeSecond = Arrays.copyOf(builder.edgeSecond, edgeCount);
+
+        int vertexCount = this.graph.vertexCount();
+        this.upOffsets = new int[vertexCount + 1];
+        this.downOffsets = new int[vertexCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            int from = edgeFrom[e];
+            int to = edgeTo[e];
+            if (builder.ranks[from] < builder.ranks[to]) {
+                upOffsets[from + 1]++;
+            } else if (builder.ranks[from] > builder.ranks[to]) {
+                downOffsets[to + 1]++;
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        this.upEdges = new int[upOffsets[vertexCount]];
+        this.downEdges = new int[downOffsets[vertexCount]];
+        int[] upFill = Arrays.copyOf(upOffsets, vertexCount);
+        int[] downFill = Arrays.copyOf(downOffsets, vertexCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int from = edgeFrom[e];
+            int to = edgeTo[e];
+            if (builder.ranks[from] < builder.ranks[to]) {
+                upEdges[upFill[from]++] = e;
+            } else if (builder.ranks[from] > builder.ranks[to]) {
+                downEdges[downFill[to]++] = e;
+            }
+        }
+        this.queries = ThreadLocal.withInitial(() -> new Query(vertexCount));
+    }
+
+    /**
+     * @param sourceVertex
+     * @param destinationVertex
+     * @return List of edges contained in the result path
+     */
+
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        int source = graph.idOf(sourceVertex);
+        int destination = graph.idOf(destinationVertex);
+        if (source < 0 || destination < 0 || source == destination) {
+            return new ArrayList<>();
+        }
+        IntList hierarchyEdges = queries.get().findPath(this, source, destination);
+        return hierarchyEdges == null ? new ArrayList<>() : unpack(hierarchyEdges);
+    }
+
+    /**
+     * @return {@link Graph#getVersion()} of the graph the hierarchy was built
+     *         from
+     */
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Expands edges of the hierarchy into the original ones in path order
+     */
+
+    private List<Edge<V>> unpack(IntList hierarchyEdges) {
+        List<Edge<V>> result = new ArrayList<>();
+        IntList stack = new IntList();
+        for (int i = 0; i < hierarchyEdges.size; i++) {
+            stack.add(hierarchyEdges.get(i));
+            while (stack.size > 0) {
+                int edge = stack.get(--stack.size);
+                if (edgeSecond[edge] < 0) {
+                    result.add(graph.edgeAt(edgeFirst[edge]));
+                } else {
+                    stack.add(edgeSecond[edge]);
+                    stack.add(edgeFirst[edge]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Search buffers of one thread, they mustn't reference the hierarchy: the
+     * thread local holding them would never let it be collected
+     */
+    private static final class Query {
+
+        private final int[] forwardDistances;
+
+        private final int[] backwardDistances;
+
+        private final int[] forwardParents;
+
+        private final int[] backwardParents;
+
+        private final IndexedMinHeap forwardHeap;
+
+        private final IndexedMinHeap backwardHeap;
+
+        private final IntList touched = new IntList();
+
+        private int bestDistance;
+
+        private int meeting;
+
+        Query(int vertexCount) {
+            this.forwardDistances = new int[vertexCount];
+            this.backwardDistances = new int[vertexCount];
+            this.forwardParents = new int[vertexCount];
+            this.backwardParents = new int[vertexCount];
+            this.forwardHeap = new IndexedMinHeap(vertexCount);
+            this.backwardHeap = new IndexedMinHeap(vertexCount);
+            Arrays.fill(forwardDistances, Integer.MAX_VALUE);
+            Arrays.fill(backwardDistances, Integer.MAX_VALUE);
+        }
+
+        /**
+         * @return hierarchy edges of the path, null if destination is
+         *         unreachable
+         */
+
+        IntList findPath(ContractionHierarchy<?> hierarchy, int source, int destination) {
+            bestDistance = Integer.MAX_VALUE;
+            meeting = -1;
+            reach(source, 0, -1, forwardDistances, forwardParents, backwardDistances, forwardHeap);
+            reach(destination, 0, -1, backwardDistances, backwardParents, forwardDistances, backwardHeap);
+
+            boolean forward = true;
+            while (true) {
+                boolean forwardDone = forwardHeap.isEmpty() || forwardHeap.peekKey() >= bestDistance;
+                boolean backwardDone = backwardHeap.isEmpty() || backwardHeap.peekKey() >= bestDistance;
+                if (forwardDone && backwardDone) {
+                    break;
+                }
+                if (forward && !forwardDone || backwardDone) {
+                    settle(forwardHeap, forwardDistances, forwardParents, backwardDistances, hierarchy.upOffsets,
+                            hierarchy.upEdges, hierarchy.edgeTo, hierarchy.edgeWeights);
+                } else {
+                    settle(backwardHeap, backwardDistances, backwardParents, forwardDistances,
+                            hierarchy.downOffsets, hierarchy.downEdges, hierarchy.edgeFrom, hierarchy.edgeWeights);
+                }
+                forward = !forward;
+            }
+
+            IntList result = meeting < 0 ? null : pathEdges(hierarchy.edgeFrom, hierarchy.edgeTo);
+            reset();
+            return result;
+        }
+
+        private void settle(IndexedMinHeap heap, int[] distances, int[] parents, int[] otherDistances,
+                int[] offsets, int[] adjacentEdges, int[] edgeEnds, int[] edgeWeights) {
+            int vertex = heap.pollMin();
+            int distance = distances[vertex];
+            for (int i = offsets[vertex], end = offsets[vertex + 1]; i < end; i++) {
+                int edge = adjacentEdges[i];
+                int candidate = distance + edgeWeights[edge];
+                if (candidate >= 0 && candidate < distances[edgeEnds[edge]]) {
+                    reach(edgeEnds[edge], candidate, edge, distances, parents, otherDistances, heap);
+                }
+            }
+        }
+
+        private void reach(int vertex, int distance, int parentEdge, int[] distances, int[] parents,
+                int[] otherDistances, IndexedMinHeap heap) {
+            if (forwardDistances[vertex] == Integer.MAX_VALUE && backwardDistances[vertex] == Integer.MAX_VALUE) {
+                touched.add(vertex);
+            }
+            distances[vertex] = distance;
+            parents[vertex] = parentEdge;
+            heap.insertOrDecrease(vertex, distance);
+            if (otherDistances[vertex] != Integer.MAX_VALUE) {
+                long total = (long) distance + otherDistances[vertex];
+                if (total < bestDistance) {
+                    bestDistance = (int) total;
+                    meeting = vertex;
+                }
+            }
+        }
+
+        /**
+         * @return hierarchy edges from the source to the meeting vertex and on
+         *         to the destination
+         */
+
+        private IntList pathEdges(int[] edgeFrom, int[] edgeTo) {
+            IntList edges = new IntList();
+            for (int v = meeting; forwardParents[v] >= 0; v = edgeFrom[forwardParents[v]]) {
+                edges.add(forwardParents[v]);
+            }
+            for (int i = 0, j = edges.size - 1; i < j; i++, j--) {
+                int swap = edges.values[i];
+                edges.values[i] = edges.values[j];
+                edges.values[j] = swap;
+            }
+            for (int v = meeting; backwardParents[v] >= 0; v = edgeTo[backwardParents[v]]) {
+                edges.add(backwardParents[v]);
+            }
+            return edges;
+        }
+
+        private void reset() {
+            for (int i = 0; i < touched.size; i++) {
+                forwardDistances[touched.get(i)] = Integer.MAX_VALUE;
+                backwardDistances[touched.get(i)] = Integer.MAX_VALUE;
+            }
+            touched.clear();
+            forwardHeap.clear();
+            backwardHeap.clear();
+        }
+
+    }
+
+    /**
+     * Contracts the vertices of a snapshot, the remaining graph grows with the
+     * shortcuts and shrinks with every contracted vertex
+     */
+    private static final class Builder {
+
+        private final int vertexCount;
+
+        private int[] edgeFrom;
+
+        private int[] edgeTo;
+
+        private int[] edgeWeights;
+
+        private int[] edgeFirst;
+
+        private int[] edgeSecond;
+
+        private int edgeCount;
+
+        private final IntList[] outgoing;
+
+        private final IntList[] incoming;
+
+        private final boolean[] contracted;
+
+        private final int[] contractedNeighbours;
+
+        private final int[] ranks;
+
+        private final int[] witnessDistances;
+
+        private final IndexedMinHeap witnessHeap;
+
+        private final IntList witnessTouched = new IntList();
+
+        /**
+         * Witness round a vertex is a target of
+         */
+        private final int[] targetRounds;
+
+        private int witnessRound;
+
+        Builder(CsrGraph<?> graph) {
+            this.vertexCount = graph.vertexCount();
+            int capacity = Math.max(graph.edgeCount() * 2, 16);
+            this.edgeFrom = new int[capacity];
+            this.edgeTo = new int[capacity];
+            this.edgeWeights = new int[capacity];
+            this.edgeFirst = new int[capacity];
+            this.edgeSecond = new int[capacity];
+            this.outgoing = new IntList[vertexCount];
+            this.incoming = new IntList[vertexCount];
+            for (int v = 0; v < vertexCount; v++) {
+                outgoing[v] = new IntList(4);
+                incoming[v] = new IntList(4);
+            }
+            this.contracted = new boolean[vertexCount];
+            this.contractedNeighbours = new int[vertexCount];
+            this.ranks = new int[vertexCount];
+            this.witnessDistances = new int[vertexCount];
+            Arrays.fill(witnessDistances, Integer.MAX_VALUE);
+            this.witnessHeap = new IndexedMinHeap(vertexCount);
+            this.targetRounds = new int[vertexCount];
+
+            for (int v = 0; v < vertexCount; v++) {
+                int from = v;
+                graph.forEachOutgoing(v, (target, weight, slot) -> {
+                    if (target != from) {
+                        addEdge(from, target, weight, slot, -1);
+                    }
+                });
+            }
+        }
+
+        /**
+         * Contracts vertices in the order of their priorities, which are
+         * recomputed lazily when a vertex reaches the top of the queue
+         */
+
+        void contractAll() {
+            IndexedMinHeap order = new IndexedMinHeap(vertexCount);
+            for (int v = 0; v < vertexCount; v++) {
+                order.insertOrDecrease(v, priorityOf(v));
+            }
+            int rank = 0;
+            while (!order.isEmpty()) {
+                int vertex = order.pollMin();
+                int priority = priorityOf(vertex);
+                if (!order.isEmpty() && priority > order.peekKey()) {
+                    order.insertOrDecrease(vertex, priority);
+                    continue;
+                }
+                contract(vertex, false);
+                contracted[vertex] = true;
+                ranks[vertex] = rank++;
+                pruneNeighbours(vertex);
+            }
+        }
+
+        /**
+         * Drops edges leading to contracted vertices from the lists of the
+         * neighbours, so searches over the remaining graph don't skip them
+         * again and again
+         */
+
+        private void pruneNeighbours(int vertex) {
+            IntList in = incoming[vertex];
+            for (int i = 0; i < in.size; i++) {
+                prune(outgoing[edgeFrom[in.get(i)]], edgeTo);
+            }
+            IntList out = outgoing[vertex];
+            for (int i = 0; i < out.size; i++) {
+                prune(incoming[edgeTo[out.get(i)]], edgeFrom);
+            }
+        }
+
+        private void prune(IntList edges, int[] otherEnds) {
+            int size = 0;
+            for (int i = 0; i < edges.size; i++) {
+                if (!contracted[otherEnds[edges.get(i)]]) {
+                    edges.values[size++] = edges.get(i);
+                }
+            }
+            edges.size = size;
+        }
+
+        /**
+         * Edge difference plus the number of already contracted neighbours,
+         * which spreads contraction evenly over the graph
+         */
+
+        private int priorityOf(int vertex) {
+            int removed = 0;
+            for (int i = 0; i < incoming[vertex].size; i++) {
+                removed += contracted[edgeFrom[incoming[vertex].get(i)]] ? 0 : 1;
+            }
+            for (int i = 0; i < outgoing[vertex].size; i++) {
+                removed += contracted[edgeTo[outgoing[vertex].get(i)]] ? 0 : 1;
+            }
+            return contract(vertex, true) - removed + contractedNeighbours[vertex];
+        }
+
+        /**
+         * @param vertex
+         * @param simulate only count the shortcuts instead of adding them
+         * @return number of shortcuts contraction of vertex needs
+         */
+
+        private int contract(int vertex, boolean simulate) {
+            int shortcuts = 0;
+            IntList in = incoming[vertex];
+            IntList out = outgoing[vertex];
+            for (int i = 0; i < in.size; i++) {
+                int inEdge = in.get(i);
+                int from = edgeFrom[inEdge];
+                if (contracted[from]) {
+                    continue;
+                }
+                if (!simulate) {
+                    contractedNeighbours[from]++;
+                }
+                int maxDistance = -1;
+                int targets = 0;
+                witnessRound++;
+                for (int j = 0; j < out.size; j++) {
+                    int to = edgeTo[out.get(j)];
+                    if (!contracted[to] && to != from) {
+                        maxDistance = Math.max(maxDistance, viaDistance(inEdge, out.get(j)));
+                        if (targetRounds[to] != witnessRound) {
+                            targetRounds[to] = witnessRound;
+                            targets++;
+                        }
+                    }
+                }
+                if (maxDistance < 0) {
+                    continue;
+                }
+                searchWitnesses(from, vertex, maxDistance, targets,
+                        simulate ? PRIORITY_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                int outSize = out.size;
+                for (int j = 0; j < outSize; j++) {
+                    int outEdge = out.get(j);
+                    int to = edgeTo[outEdge];
+                    if (contracted[to] || to == from) {
+                        continue;
+                    }
+                    int distance = viaDistance(inEdge, outEdge);
+                    if (witnessDistances[to] > distance) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addEdge(from, to, distance, inEdge, outEdge);
+                        }
+                    }
+                }
+                clearWitnesses();
+            }
+            if (!simulate) {
+                for (int j = 0; j < out.size; j++) {
+                    int to = edgeTo[out.get(j)];
+                    if (!contracted[to]) {
+                        contractedNeighbours[to]++;
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        private int viaDistance(int inEdge, int outEdge) {
+            return (int) Math.min(Integer.MAX_VALUE - 1, (long) edgeWeights[inEdge] + edgeWeights[outEdge]);
+        }
+
+        /**
+         * Local Dijkstra from source over the remaining graph without the
+         * contracted vertex, bounded by distance and number of settled vertices.
+         * Stops once all the targets marked for the round are settled.
+         */
+
+        private void searchWitnesses(int source, int excluded, int maxDistance, int targets, int settleLimit) {
+            witnessDistances[source] = 0;
+            witnessTouched.add(source);
+            witnessHeap.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && witnessHeap.peekKey() <= maxDistance
+                    && settled++ < settleLimit) {
+                int vertex = witnessHeap.pollMin();
+                if (targetRounds[vertex] == witnessRound && --targets == 0) {
+                    return;
+                }
+                IntList out = outgoing[vertex];
+                for (int i = 0; i < out.size; i++) {
+                    int edge = out.get(i);
+                    int target = edgeTo[edge];
+                    if (contracted[target] || target == excluded) {
+                        continue;
+                    }
+                    int candidate = witnessDistances[vertex] + edgeWeights[edge];
+                    if (candidate >= 0 && candidate < witnessDistances[target]) {
+                        if (witnessDistances[target] == Integer.MAX_VALUE) {
+                            witnessTouched.add(target);
+                        }
+                        witnessDistances[target] = candidate;
+                        witnessHeap.insertOrDecrease(target, candidate);
+                    }
+                }
+            }
+        }
+
+        private void clearWitnesses() {
+            for (int i = 0; i < witnessTouched.size; i++) {
+                witnessDistances[witnessTouched.get(i)] = Integer.MAX_VALUE;
+            }
+            witnessTouched.clear();
+            witnessHeap.clear();
+        }
+
+        private void addEdge(int from, int to, int weight, int first, int second) {
+            if (edgeCount == edgeFrom.length) {
+                int capacity = edgeCount * 2;
+                edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+                edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+                edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+                edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeWeights[edgeCount] = weight;
+            edgeFirst[edgeCount] = first;
+            edgeSecond[edgeCount] = second;
+            outgoing[from].add(edgeCount);
+            incoming[to].add(edgeCount);
+            edgeCount++;
+        }
+
+    }
+
+}
@@ -0,0 +1,192 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Graph decorator answering getPath with a {@link ContractionHierarchy} of the
+ * decorated graph. The hierarchy is built when the decorator is created. Once
+ * the graph changes, queries are answered by the graph itself while a new
+ * hierarchy is built on the executor, and the hierarchy takes over again when
+ * it matches {@link Graph#getVersion()}, so the decorated graph has to track
+ * its versions. The decorated graph has to be thread safe when the executor
+ * runs in other threads.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public class ContractionHierarchyGraph<V> implements Graph<V> {
+
+    private final Graph<V> graph;
+
+    private final Executor executor;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final AtomicReference<ContractionHierarchy<V>> hierarchy;
+
+    /**
+     * @param graph    decorated graph
+     * @param executor runs background rebuilds of the hierarchy
+     */
+
+    public ContractionHierarchyGraph(Graph<V> graph, Executor executor) {
+        if (graph == null || executor == null) {
+            throw new IllegalArgumentException("Graph and executor can't be null!");
+        }
+        // untracked graphs return a new version on every call, no hierarchy would ever match them
+        if (graph.getVersion() != graph.getVersion()) {
+            throw new IllegalArgumentException("Graph must track its versions!");
+        }
+        this.graph = graph;
+        this.executor = executor;
+        this.hierarchy = new AtomicReference<>(new ContractionHierarchy<>(graph));
+    }
+
+    @Override
+    public Graph<V> addVertex(V vertex) {
+        graph.addVertex(vertex);
+        return this;
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        graph.addEdge(edge);
+        return this;
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        ContractionHierarchy<V> current = hierarchy.get();
+        if (current.getVersion() == graph.getVersion()) {
+            return current.getPath(sourceVertex, destinationVertex);
+        }
+        rebuildInBackground();
+        return graph.getPath(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * Explicit strategies are passed through, the hierarchy is not consulted
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        return graph.getPath(sourceVertex, destinationVertex, strategy);
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+        return graph.getPath(sourceVertex, destinationVertex, heuristic);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        return graph.getPathsFrom(sourceVertex);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex, PathStrategy strategy) {
+        return graph.getPathsFrom(sourceVertex, strategy);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        return graph.getPaths(sourceVertex, destinationVertices);
+    }
+
+    @Override
+    public boolean isReachable(V sourceVertex, V destinationVertex) {
+        return graph.isReachable(sourceVertex, destinationVertex);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function) {
+        return graph.traverse(function);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function, int parallelism) {
+        return graph.traverse(function, parallelism);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function, ForkJoinPool pool) {
+        return graph.traverse(function, pool);
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super V> action) {
+        graph.forEachVertex(action);
+    }
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<V>> action) {
+        graph.forEachEdge(action);
+    }
+
+    @Override
+    public Stream<V> vertexStream() {
+        return graph.vertexStream();
+    }
+
+    @Override
+    public Graph<V> snapshot() {
+        return graph.snapshot();
+    }
+
+    @Override
+    public long getVersion() {
+        return graph.getVersion();
+    }
+
+    /**
+     * @return true if getPath is answered by the hierarchy
+     */
+
+    public boolean isHierarchyCurrent() {
+        return hierarchy.get().getVersion() == graph.getVersion();
+    }
+
+    public ContractionHierarchy<V> getHierarchy() {
+        return hierarchy.get();
+    }
+
+    /**
+     * Builds the hierarchy of the current graph in the calling thread. It isn't
+     * published if a concurrent rebuild has meanwhile published a newer one.
+     */
+
+    public void rebuild() {
+        ContractionHierarchy<V> built = new ContractionHierarchy<>(graph);
+        hierarchy.accumulateAndGet(built,
+                (current, candidate) -> candidate.getVersion() >= current.getVersion() ? candidate : current);
+    }
+
+    private void rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    rebuild();
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rebuilding.set(false);
+        }
+    }
+
+}
@@ -0,0 +1,432 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Immutable snapshot of a graph. Vertices are interned to dense int ids and the
+ * adjacency is kept in
+ * https://en.wikipedia.org/wiki/Sparse_matrix#Compressed_sparse_row_(CSR,_CRS_or_Yale_format)
+ * arrays holding only the lightest edge of every adjacent vertex pair. Edges are
+ * turned back into {@link Edge} objects only when a path is returned.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public final class CsrGraph<V> implements Graph<V>, IntAdjacency {
+
+    private final Object[] vertexById;
+
+    private final Map<V, Integer> vertexIds;
+
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private final int[] weights;
+
+    private final Object[] edges;
+
+    private final int maxWeight;
+
+    /**
+     * Search buffers reused by the point to point queries of every thread, they
+     * mustn't reference the graph
+     */
+    private final ThreadLocal<IntDijkstraSearch> searches;
+
+    CsrGraph(Set<V> vertices, Map<V, ? extends Map<V, Edge<V>>> lightestEdges) {
+        int vertexCount = vertices.size();
+        this.searches = ThreadLocal.withInitial(() -> new IntDijkstraSearch(vertexCount));
+        this.vertexById = new Object[vertexCount];
+        this.vertexIds = new HashMap<>(vertexCount * 4 / 3 + 1);
+        this.offsets = new int[vertexCount + 1];
+
+        int id = 0;
+        for (V vertex : vertices) {
+            vertexById[id] = vertex;
+            vertexIds.put(vertex, id);
+            Map<V, Edge<V>> neighbours = lightestEdges.get(vertex);
+            offsets[id + 1] = offsets[id] + (neighbours == null ? 0 : neighbours.size());
+            id++;
+        }
+
+        int edgeCount = offsets[vertexCount];
+        this.targets = new int[edgeCount];
+        this.weights = new int[edgeCount];
+        this.edges = new Object[edgeCount];
+        int heaviest = 0;
+
+        for (int v = 0; v < vertexCount; v++) {
+            @SuppressWarnings("unchecked")
+            Map<V, Edge<V>> neighbours = lightestEdges.get((V) vertexById[v]);
+            if (neighbours == null) {
+                continue;
+            }
+            int slot = offsets[v];
+            for (Map.Entry<V, Edge<V>> neighbour : neighbours.entrySet()) {
+                targets[slot] = vertexIds.get(neighbour.getKey());
+                weights[slot] = neighbour.getValue().getWeight();
+                edges[slot] = neighbour.getValue();
+                heaviest = Math.max(heaviest, weights[slot]);
+                slot++;
+            }
+        }
+        this.maxWeight = heaviest;
+    }
+
+    @Override
+    public Graph<V> addVertex(V vertex) {
+        throw new UnsupportedOperationException("Graph snapshot is immutable!");
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        throw new UnsupportedOperationException("Graph snapshot is immutable!");
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        Integer source = vertexIds.get(sourceVertex);
+        Integer destination = vertexIds.get(destinationVertex);
+        if (source == null || destination == null || source.equals(destination)) {
+            return new ArrayList<>();
+        }
+        return edgesOf(IntDijkstraSearch.acquire(searches, vertexById.length).findPath(this, source, destination));
+    }
+
+    /**
+     * Snapshot answers with {@link PathStrategy#DIJKSTRA} unless
+     * {@link PathStrategy#DELTA_STEPPING} is asked for
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        if (strategy == PathStrategy.DELTA_STEPPING) {
+            return getPath(sourceVertex, destinationVertex, ForkJoinPool.commonPool(), defaultDelta());
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * Searches the path with {@link PathStrategy#DELTA_STEPPING}
+     * 
+     * @param sourceVertex
+     * @param destinationVertex
+     * @param pool              pool relaxing the edges
+     * @param delta             bucket width, the larger it is the more edges
+     *                          are relaxed in parallel and the more of them are
+     *                          relaxed in vain
+     * @return List of edges contained in the result path
+     */
+
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ForkJoinPool pool, int delta) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can't be null");
+        }
+        Integer source = vertexIds.get(sourceVertex);
+        Integer destination = vertexIds.get(destinationVertex);
+        if (source == null || destination == null || source.equals(destination)) {
+            return new ArrayList<>();
+        }
+        DeltaSteppingSearch search = new DeltaSteppingSearch(this, maxWeight, delta, pool);
+        BitSet destinations = new BitSet(vertexById.length);
+        destinations.set(destination);
+        search.findPaths(source, destinations);
+        return search.distanceTo(destination) == Integer.MAX_VALUE ? new ArrayList<>()
+                : edgesOf(search.pathTo(destination));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic can't be null");
+        }
+        Integer source = vertexIds.get(sourceVertex);
+        Integer destination = vertexIds.get(destinationVertex);
+        if (source == null || destination == null || source.equals(destination)) {
+            return new ArrayList<>();
+        }
+        return edgesOf(IntDijkstraSearch.acquire(searches, vertexById.length).findPath(this,
+                v -> heuristic.applyAsInt((V) vertexById[v]), source, destination));
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return searchPaths(sourceVertex, null);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        if (strategy == PathStrategy.DELTA_STEPPING) {
+            return getPathsFrom(sourceVertex, ForkJoinPool.commonPool(), defaultDelta());
+        }
+        return getPathsFrom(sourceVertex);
+    }
+
+    /**
+     * Searches the paths with {@link PathStrategy#DELTA_STEPPING}
+     * 
+     * @param sourceVertex
+     * @param pool         pool relaxing the edges
+     * @param delta        bucket width
+     * @return reusable tree of the shortest paths
+     */
+
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex, ForkJoinPool pool, int delta) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can't be null");
+        }
+        Integer source = vertexIds.get(sourceVertex);
+        if (source == null) {
+            return new CsrShortestPathTree(sourceVertex, null);
+        }
+        DeltaSteppingSearch search = new DeltaSteppingSearch(this, maxWeight, delta, pool);
+        search.findPaths(source, null);
+        return new CsrShortestPathTree(sourceVertex, search);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        if (sourceVertex == null || destinationVertices == null) {
+            throw new IllegalArgumentException("Vertices can't be null");
+        }
+        return searchPaths(sourceVertex, destinationVertices);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<?> traverse(Function<V, ?> function) {
+        List<Object> result = new ArrayList<>(vertexById.length);
+        for (Object vertex : vertexById) {
+            result.add(function.apply((V) vertex));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEachVertex(Consumer<? super V> action) {
+        for (Object vertex : vertexById) {
+            action.accept((V) vertex);
+        }
+    }
+
+    /**
+     * Passes the lightest edges only, as they are the ones kept
+     */
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<V>> action) {
+        // an undirected edge is kept for both directions it is the lightest in
+        Set<Edge<V>> undirected = new HashSet<>();
+        for (int slot = 0; slot < edges.length; slot++) {
+            Edge<V> edge = edgeAt(slot);
+            if (!(edge instanceof UndirectedEdge) || undirected.add(edge)) {
+                action.accept(edge);
+            }
+        }
+    }
+
+    /**
+     * Streams the vertex array itself, so the stream splits evenly and creates
+     * no garbage per vertex
+     */
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Stream<V> vertexStream() {
+        return Arrays.stream((V[]) vertexById);
+    }
+
+    @Override
+    public Graph<V> snapshot() {
+        return this;
+    }
+
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexById.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * @return delta of the {@link PathStrategy#DELTA_STEPPING} queries: maximal
+     *         edge weight divided by the average out degree, the usual choice
+     *         for graphs with random weights
+     */
+
+    public int defaultDelta() {
+        return (int) Math.max(1, (long) maxWeight * vertexById.length / Math.max(1, targets.length));
+    }
+
+    @Override
+    public void forEachOutgoing(int vertex, IntEdgeConsumer consumer) {
+        for (int slot = offsets[vertex], end = offsets[vertex + 1]; slot < end; slot++) {
+            consumer.accept(targets[slot], weights[slot], slot);
+        }
+    }
+
+    /**
+     * @param vertex
+     * @return dense id of the vertex, -1 if the snapshot doesn't contain it
+     */
+
+    int idOf(V vertex) {
+        Integer id = vertexIds.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param slot
+     * @return original edge stored in the slot
+     */
+
+    @SuppressWarnings("unchecked")
+    Edge<V> edgeAt(int slot) {
+        return (Edge<V>) edges[slot];
+    }
+
+    /**
+     * @param destinationVertices null to search the whole reachable part of the
+     *                            graph
+     */
+
+    private ShortestPathTree<V> searchPaths(V sourceVertex, Collection<V> destinationVertices) {
+        Integer source = vertexIds.get(sourceVertex);
+        if (source == null) {
+            return new CsrShortestPathTree(sourceVertex, null);
+        }
+        BitSet destinations = null;
+        if (destinationVertices != null) {
+            destinations = new BitSet(vertexById.length);
+            for (V vertex : destinationVertices) {
+                Integer destination = vertexIds.get(vertex);
+                if (destination != null) {
+                    destinations.set(destination);
+                }
+            }
+        }
+        IntDijkstraSearch search = new IntDijkstraSearch(this);
+        search.findPaths(source, destinations);
+        return new CsrShortestPathTree(sourceVertex, search);
+    }
+
+    /**
+     * @param graph
+     * @return graph itself if it is a CsrGraph, otherwise a copy of its
+     *         vertices and {@link Graph#forEachEdge(Consumer)} edges
+     */
+
+    static <V> CsrGraph<V> copyOf(Graph<V> graph) {
+        if (graph instanceof CsrGraph) {
+            return (CsrGraph<V>) graph;
+        }
+        Set<V> vertices = new HashSet<>();
+        graph.forEachVertex(vertices::add);
+        Set<Edge<V>> edges = new HashSet<>();
+        graph.forEachEdge(edges::add);
+        return (CsrGraph<V>) new DirectedGraph<>(vertices, edges).snapshot();
+    }
+
+    /**
+     * @param id
+     * @return vertex with the dense id
+     */
+
+    @SuppressWarnings("unchecked")
+    V vertexAt(int id) {
+        return (V) vertexById[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Edge<V>> edgesOf(int[] slots) {
+        List<Edge<V>> result = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            result.add((Edge<V>) edges[slot]);
+        }
+        return result;
+    }
+
+    private final class CsrShortestPathTree implements ShortestPathTree<V> {
+
+        private final V source;
+
+        private final IntPathTree search;
+
+        CsrShortestPathTree(V source, IntPathTree search) {
+            this.source = source;
+            this.search = search;
+        }
+
+        @Override
+        public V getSource() {
+            return source;
+        }
+
+        @Override
+        public boolean hasPathTo(V vertex) {
+            return getDistanceTo(vertex) != Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int getDistanceTo(V vertex) {
+            Integer id = vertexIds.get(vertex);
+            if (search == null || id == null) {
+                return source.equals(vertex) ? 0 : Integer.MAX_VALUE;
+            }
+            return search.distanceTo(id);
+        }
+
+        @Override
+        public List<Edge<V>> getPathTo(V vertex) {
+            return hasPathTo(vertex) && search != null ? edgesOf(search.pathTo(vertexIds.get(vertex)))
+                    : new ArrayList<>();
+        }
+
+    }
+
+}
@@ -0,0 +1,280 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Parallel single source shortest paths over an {@link IntAdjacency}.
+ * Tentative distances are kept in buckets of width delta. Vertices of the
+ * current bucket relax their light edges (weight up to delta) in parallel until
+ * the bucket stays empty, then heavy edges are relaxed once from everything the
+ * bucket held. Distances are lowered with CAS, so workers never lock.
+ *
+ * https://en.wikipedia.org/wiki/Parallel_single-source_shortest_path_algorithm#Delta_stepping_algorithm
+ *
+ * @author kkrushnyakov
+ *
+ */
+final class DeltaSteppingSearch implements IntPathTree {
+
+    /**
+     * Frontier vertices one task relaxes without further splitting
+     */
+    private static final int VERTICES_PER_TASK = 256;
+
+    private static final long UNREACHED = pack(Integer.MAX_VALUE, -1);
+
+    private final IntAdjacency adjacency;
+
+    private final ForkJoinPool pool;
+
+    private final int delta;
+
+    private final int bucketCount;
+
+    /**
+     * Distance in the high half and parent vertex in the low half, updated
+     * together by one CAS
+     */
+    private final AtomicLongArray states;
+
+    /**
+     * Distance every vertex had when it was last expanded
+     */
+    private final int[] expandedDistances;
+
+    private final IntList[] buckets;
+
+    private long settledBound;
+
+    /**
+     * @param adjacency
+     * @param maxWeight upper bound of the edge weights
+     * @param delta     bucket width, small values approach Dijkstra, large ones
+     *                  approach Bellman-Ford with more parallel work
+     * @param pool
+     */
+
+    DeltaSteppingSearch(IntAdjacency adjacency, int maxWeight, int delta, ForkJoinPool pool) {
+        if (delta <= 0) {
+            throw new IllegalArgumentException("Delta must be positive!");
+        }
+        int vertexCount = adjacency.vertexCount();
+        this.adjacency = adjacency;
+        this.pool = pool;
+        this.delta = delta;
+        // pending distances never spread over more than maxWeight / delta + 1 buckets
+        this.bucketCount = maxWeight / delta + 2;
+        this.states = new AtomicLongArray(vertexCount);
+        this.expandedDistances = new int[vertexCount];
+        this.buckets = new IntList[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            buckets[b] = new IntList();
+        }
+    }
+
+    /**
+     * Settles buckets in distance order until every destination is settled,
+     * results are then read by {@link #distanceTo(int)} and {@link #pathTo(int)}
+     *
+     * @param source
+     * @param destinations vertices to stop after, null to search the whole
+     *                     reachable part of the graph
+     */
+
+    void findPaths(int source, BitSet destinations) {
+        for (int v = 0; v < states.length(); v++) {
+            states.set(v, UNREACHED);
+        }
+        Arrays.fill(expandedDistances, Integer.MAX_VALUE);
+        states.set(source, pack(0, -1));
+        buckets[0].add(source);
+        int pending = 1;
+        settledBound = Long.MAX_VALUE;
+
+        IntList bucketVertices = new IntList();
+        for (long bucket = 0; pending > 0; bucket++) {
+            IntList current = buckets[(int) (bucket % bucketCount)];
+            bucketVertices.clear();
+            while (current.size > 0) {
+                int[] frontier = frontierOf(current, bucket);
+                pending -= current.size;
+                current.clear();
+                bucketVertices.addAll(frontier, frontier.length);
+                pending += enqueue(relax(frontier, frontier.length, true));
+            }
+            pending += enqueue(relax(bucketVertices.values, bucketVertices.size, false));
+
+            long bound = (bucket + 1) * delta;
+            if (destinations != null && allSettled(destinations, bound)) {
+                settledBound = bound;
+                for (IntList list : buckets) {
+                    list.clear();
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int distanceTo(int vertex) {
+        int distance = distanceOf(states.get(vertex));
+        return distance < settledBound ? distance : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Edge slots are looked up from the parent vertices only for the returned
+     * path, so relaxation doesn't have to publish them
+     */
+
+    @Override
+    public int[] pathTo(int vertex) {
+        int length = 0;
+        for (int v = vertex; parentOf(states.get(v)) >= 0; v = parentOf(states.get(v))) {
+            length++;
+        }
+        int[] slots = new int[length];
+        for (int v = vertex; parentOf(states.get(v)) >= 0; v = parentOf(states.get(v))) {
+            slots[--length] = slotOf(parentOf(states.get(v)), v);
+        }
+        return slots;
+    }
+
+    private int slotOf(int parent, int vertex) {
+        int weight = distanceOf(states.get(vertex)) - distanceOf(states.get(parent));
+        int[] found = { -1 };
+        adjacency.forEachOutgoing(parent, (target, w, slot) -> {
+            if (found[0] < 0 && target == vertex && w == weight) {
+                found[0] = slot;
+            }
+        });
+        return found[0];
+    }
+
+    /**
+     * @return vertices of the list still belonging to the bucket and improved
+     *         since they were expanded last time
+     */
+
+    private int[] frontierOf(IntList list, long bucket) {
+        int[] frontier = new int[list.size];
+        int size = 0;
+        for (int i = 0; i < list.size; i++) {
+            int vertex = list.values[i];
+            int distance = distanceOf(states.get(vertex));
+            if (distance / delta == bucket && distance < expandedDistances[vertex]) {
+                expandedDistances[vertex] = distance;
+                frontier[size++] = vertex;
+            }
+        }
+        return Arrays.copyOf(frontier, size);
+    }
+
+    private boolean allSettled(BitSet destinations, long bound) {
+        for (int v = destinations.nextSetBit(0); v >= 0; v = destinations.nextSetBit(v + 1)) {
+            if (distanceOf(states.get(v)) >= bound) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IntList relax(int[] vertices, int size, boolean light) {
+        RelaxTask task = new RelaxTask(vertices, 0, size, light);
+        return size <= VERTICES_PER_TASK ? task.compute() : pool.invoke(task);
+    }
+
+    /**
+     * @return number of vertices put into the buckets
+     */
+
+    private int enqueue(IntList improved) {
+        for (int i = 0; i < improved.size; i++) {
+            int vertex = improved.values[i];
+            buckets[(distanceOf(states.get(vertex)) / delta) % bucketCount].add(vertex);
+        }
+        return improved.size;
+    }
+
+    private static long pack(int distance, int parent) {
+        return ((long) distance << 32) | (parent & 0xFFFFFFFFL);
+    }
+
+    private static int distanceOf(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int parentOf(long state) {
+        return (int) state;
+    }
+
+    private final class RelaxTask extends RecursiveTask<IntList> implements IntAdjacency.IntEdgeConsumer {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] vertices;
+
+        private final int from;
+
+        private final int to;
+
+        private final boolean light;
+
+        private IntList improved;
+
+        private int expandedVertex;
+
+        private int expandedDistance;
+
+        RelaxTask(int[] vertices, int from, int to, boolean light) {
+            this.vertices = vertices;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        protected IntList compute() {
+            if (to - from > VERTICES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                RelaxTask right = new RelaxTask(vertices, middle, to, light);
+                right.fork();
+                IntList left = new RelaxTask(vertices, from, middle, light).compute();
+                IntList rightImproved = right.join();
+                left.addAll(rightImproved.values, rightImproved.size);
+                return left;
+            }
+            improved = new IntList();
+            for (int i = from; i < to; i++) {
+                expandedVertex = vertices[i];
+                expandedDistance = distanceOf(states.get(expandedVertex));
+                adjacency.forEachOutgoing(expandedVertex, this);
+            }
+            return improved;
+        }
+
+        @Override
+        public void accept(int target, int weight, int slot) {
+            if ((weight <= delta) != light) {
+                return;
+            }
+            int candidate = expandedDistance + weight;
+            if (candidate < 0) {
+                return;
+            }
+            long state = states.get(target);
+            while (candidate < distanceOf(state)) {
+                if (states.compareAndSet(target, state, pack(candidate, expandedVertex))) {
+                    improved.add(target);
+                    return;
+                }
+                state = states.get(target);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Implements https://en.wikipedia.org/wiki/Dijkstra's_algorithm on top of an
+ * indexed binary heap. Vertices get search slots only when they are reached, so
+ * a query never touches the part of the graph it doesn't explore.
+ *
+ * Given a heuristic it turns into https://en.wikipedia.org/wiki/A*_search_algorithm:
+ * vertices are ordered by distance plus the heuristic estimate and are reopened
+ * whenever a shorter distance is found, so admissible but inconsistent
+ * heuristics still give the shortest path.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class DijkstraSearch<V> {
+
+    private final Map<V, ? extends Map<V, Edge<V>>> lightestEdges;
+
+    /**
+     * Owned by the returned tree, never shared with point to point queries
+     */
+    private final PathQueryContext context = new PathQueryContext();
+
+    /**
+     * @param lightestEdges lightest edge for every (from, to) pair of adjacent
+     *                      vertices, so every neighbour is relaxed exactly once
+     */
+
+    DijkstraSearch(Map<V, ? extends Map<V, Edge<V>>> lightestEdges) {
+        this.lightestEdges = lightestEdges;
+    }
+
+    /**
+     * @param lightestEdges     lightest edge for every (from, to) pair of
+     *                          adjacent vertices, so every neighbour is relaxed
+     *                          exactly once
+     * @param heuristic         lower bound of the remaining distance to the
+     *                          destination, null for plain Dijkstra
+     * @param context           search buffers of the query
+     * @param sourceVertex
+     * @param destinationVertex
+     * @return List of edges contained in the result path, empty if destination
+     *         is unreachable
+     */
+
+    static <V> List<Edge<V>> findPath(Map<V, ? extends Map<V, Edge<V>>> lightestEdges, ToIntFunction<V> heuristic,
+            PathQueryContext context, V sourceVertex, V destinationVertex) {
+        context.begin();
+        int sourceSlot = context.slotOf(sourceVertex);
+        context.distances[sourceSlot] = 0;
+        if (heuristic != null) {
+            context.estimates[sourceSlot] = estimateOf(heuristic, sourceVertex);
+        }
+        context.heap.insertOrDecrease(sourceSlot, priorityOf(context, heuristic, sourceSlot, 0));
+
+        while (!context.heap.isEmpty()) {
+            int slot = context.heap.pollMin();
+            V vertex = context.vertexAt(slot);
+            if (vertex.equals(destinationVertex)) {
+                return context.pathTo(slot);
+            }
+            relaxNeighbours(lightestEdges, heuristic, context, slot, vertex);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Settles vertices in distance order until every destination is settled.
+     * Returned tree reads the search state, so the instance can't be reused
+     * after it.
+     *
+     * @param sourceVertex
+     * @param destinationVertices vertices to stop after, null to search the whole
+     *                            reachable part of the graph
+     * @return tree of the settled vertices
+     */
+
+    ShortestPathTree<V> findPaths(V sourceVertex, Set<V> destinationVertices) {
+        context.begin();
+        int sourceSlot = context.slotOf(sourceVertex);
+        context.distances[sourceSlot] = 0;
+        context.heap.insertOrDecrease(sourceSlot, 0);
+        Set<V> pending = destinationVertices == null ? null : new HashSet<>(destinationVertices);
+
+        while (!context.heap.isEmpty()) {
+            int slot = context.heap.pollMin();
+            V vertex = context.vertexAt(slot);
+            if (pending != null) {
+                pending.remove(vertex);
+                if (pending.isEmpty()) {
+                    break;
+                }
+            }
+            relaxNeighbours(lightestEdges, null, context, slot, vertex);
+        }
+        return new Tree(sourceVertex);
+    }
+
+    private static <V> void relaxNeighbours(Map<V, ? extends Map<V, Edge<V>>> lightestEdges,
+            ToIntFunction<V> heuristic, PathQueryContext context, int slot, V vertex) {
+        Map<V, Edge<V>> neighbours = lightestEdges.get(vertex);
+        if (neighbours == null) {
+            return;
+        }
+        int distance = context.distances[slot];
+        for (Map.Entry<V, Edge<V>> neighbour : neighbours.entrySet()) {
+            Edge<V> edge = neighbour.getValue();
+            int candidate = distance + edge.getWeight();
+            if (candidate < 0) {
+                continue;
+            }
+            int neighbourSlot = context.slotOf(neighbour.getKey());
+            int known = context.distances[neighbourSlot];
+            if (candidate < known) {
+                if (heuristic != null && known == Integer.MAX_VALUE) {
+                    context.estimates[neighbourSlot] = estimateOf(heuristic, neighbour.getKey());
+                }
+                context.distances[neighbourSlot] = candidate;
+                context.parents[neighbourSlot] = slot;
+                context.parentEdges[neighbourSlot] = edge;
+                context.heap.insertOrDecrease(neighbourSlot, priorityOf(context, heuristic, neighbourSlot, candidate));
+            }
+        }
+    }
+
+    private static <V> int estimateOf(ToIntFunction<V> heuristic, V vertex) {
+        int estimate = heuristic.applyAsInt(vertex);
+        if (estimate < 0) {
+            throw new IllegalArgumentException("Heuristic estimate can't be negative!");
+        }
+        return estimate;
+    }
+
+    private static int priorityOf(PathQueryContext context, ToIntFunction<?> heuristic, int slot, int distance) {
+        if (heuristic == null) {
+            return distance;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) distance + context.estimates[slot]);
+    }
+
+    private final class Tree implements ShortestPathTree<V> {
+
+        private final V source;
+
+        Tree(V source) {
+            this.source = source;
+        }
+
+        @Override
+        public V getSource() {
+            return source;
+        }
+
+        @Override
+        public boolean hasPathTo(V vertex) {
+            int slot = context.reachedSlotOf(vertex);
+            return slot >= 0 && context.distances[slot] != Integer.MAX_VALUE && !context.heap.contains(slot);
+        }
+
+        @Override
+        public int getDistanceTo(V vertex) {
+            return hasPathTo(vertex) ? context.distances[context.reachedSlotOf(vertex)] : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public List<Edge<V>> getPathTo(V vertex) {
+            return hasPathTo(vertex) ? context.pathTo(context.reachedSlotOf(vertex)) : new ArrayList<>();
+        }
+
+    }
+
+}
@@ -5,14 +5,21 @@ package ru.krushnyakov.natera.lib;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * https://en.wikipedia.org/wiki/Directed_graph
@@ -23,6 +30,12 @@ import java.util.stream.Collectors;
  */
 public class DirectedGraph<V> implements Graph<V> {
 
+    /**
+     * Graphs with no heavier edges are searched with
+     * {@link PathStrategy#BUCKET_QUEUE} by default
+     */
+    public static final int BUCKET_QUEUE_WEIGHT_LIMIT = 128;
+
     protected Set<V> vertices;
 
     protected Set<Edge<V>> edges;
@@ -31,6 +44,36 @@ public class DirectedGraph<V> implements Graph<V> {
 
     protected Map<V, Set<Edge<V>>> incomingEdges = new HashMap<>();;
 
+    /**
+     * Lightest edge for every (from, to) pair of adjacent vertices
+     */
+    protected Map<V, Map<V, Edge<V>>> lightestEdges = new HashMap<>();
+
+    protected final AtomicLong version = new AtomicLong();
+
+    /**
+     * Upper bound of the edge weights, edges are never removed so it only grows
+     */
+    protected final AtomicInteger maxEdgeWeight = new AtomicInteger();
+
+    /**
+     * Components of the graph ignoring edge directions, maintained by addEdge,
+     * null when not maintained
+     */
+    protected ComponentIndex<V> components = new ComponentIndex<>();
+
+    /**
+     * Built by the first isReachable query after a change
+     */
+    private volatile ReachabilityIndex<V> reachabilityIndex;
+
+    /**
+     * Search buffers reused by the point to point queries of every thread
+     */
+    private final ThreadLocal<PathQueryContext> contexts = ThreadLocal.withInitial(PathQueryContext::new);
+
+    private final InFlightPathQueries<V> inFlightQueries = new InFlightPathQueries<>(this);
+
     protected DirectedGraph() {
         super();
         this.vertices = new HashSet<V>();
@@ -71,13 +114,38 @@ public class DirectedGraph<V> implements Graph<V> {
                     this.incomingEdges.get(e.getSource()).add(e);
                 }
             }
+            indexLightestEdge(e);
+            components.union(e.getSource(), e.getDestination());
         });
+        this.vertices.forEach(components::add);
 
     }
 
+    /**
+     * Takes over the presized adjacency of a {@link GraphBuilder}
+     */
+
+    DirectedGraph(GraphBuilder.Adjacency<V> adjacency) {
+        this.vertices = adjacency.vertices;
+        this.edges = adjacency.edges;
+        this.outgoingEdges = adjacency.outgoingEdges;
+        this.incomingEdges = adjacency.incomingEdges;
+        this.lightestEdges = adjacency.lightestEdges;
+        this.maxEdgeWeight.set(adjacency.maxWeight);
+        if (adjacency.concurrent) {
+            this.components = null;
+        } else {
+            this.components = new ComponentIndex<>(vertices.size());
+            this.vertices.forEach(components::add);
+            this.edges.forEach(e -> components.union(e.getSource(), e.getDestination()));
+        }
+    }
+
     @Override
     public Graph<V> addVertex(V vertex) {
         vertices.add(vertex);
+        components.add(vertex);
+        version.incrementAndGet();
         return this;
     }
 
@@ -108,12 +176,17 @@ public class DirectedGraph<V> implements Graph<V> {
                 this.incomingEdges.get(edge.getSource()).add(edge);
             }
         }
+        indexLightestEdge(edge);
+        components.union(edge.getSource(), edge.getDestination());
+        version.incrementAndGet();
 
         return this;
     }
 
     /**
-     * Implements https://en.wikipedia.org/wiki/Dijkstra's_algorithm 
+     * Implements https://en.wikipedia.org/wiki/Dijkstra's_algorithm, with a
+     * bucket queue instead of the heap when no edge is heavier than
+     * {@link #BUCKET_QUEUE_WEIGHT_LIMIT}
      * 
      * @param sourceVertex
      * @param destinationVertex
@@ -122,60 +195,134 @@ public class DirectedGraph<V> implements Graph<V> {
 
     @Override
     public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        return getPath(sourceVertex, destinationVertex, defaultStrategy(), contexts.get());
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        return getPath(sourceVertex, destinationVertex, strategy, contexts.get());
+    }
+
+    /**
+     * Steady state queries of the default strategies allocate nothing but the
+     * result path
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathQueryContext context) {
+        return getPath(sourceVertex, destinationVertex, defaultStrategy(), context);
+    }
+
+    private List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy,
+            PathQueryContext context) {
 
-        List<Edge<V>> result = new ArrayList<>();
         if (sourceVertex == null || destinationVertex == null) {
             throw new IllegalArgumentException("Vertex can't be null");
         }
-        if (sourceVertex.equals(destinationVertex)) {
-            return result;
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("Path query context can't be null");
+        }
+        if (sourceVertex.equals(destinationVertex) || !vertices.contains(sourceVertex)
+                || !vertices.contains(destinationVertex) || !mayReach(sourceVertex, destinationVertex)) {
+            return new ArrayList<>();
         }
-        Set<V> unvisitedVertices = new HashSet<>();
-        Map<V, Integer> verticesDistances = new HashMap<>();
-        Map<V, V> previousVertices = new HashMap<>();
+        switch (strategy) {
+        case BUCKET_QUEUE:
+            List<Edge<V>> path = BucketQueueSearch.findPath(lightestEdges, context, sourceVertex, destinationVertex,
+                    maxEdgeWeight.get());
+            // null if a concurrent writer added a heavier edge during the search
+            return path != null ? path
+                    : DijkstraSearch.findPath(lightestEdges, null, context, sourceVertex, destinationVertex);
+        case BIDIRECTIONAL_DIJKSTRA:
+            return new BidirectionalDijkstraSearch<>(lightestEdges, incomingEdges).findPath(sourceVertex,
+                    destinationVertex);
+        case DIJKSTRA:
+        default:
+            return DijkstraSearch.findPath(lightestEdges, null, context, sourceVertex, destinationVertex);
+        }
+    }
 
-        vertices.forEach(v -> {
-            unvisitedVertices.add(v);
-            verticesDistances.put(v, Integer.MAX_VALUE);
-            previousVertices.put(v, null);
-        });
+    /**
+     * Identical queries running at the same time share one search. The search
+     * runs concurrently with the caller, so the graph mustn't be changed
+     * meanwhile unless it comes from a thread safe factory.
+     */
 
-        verticesDistances.put(sourceVertex, 0);
-
-        while (!unvisitedVertices.isEmpty()) {
-            V minimumDistanceUnvisited = Collections.min(unvisitedVertices,
-                    (e1, e2) -> Integer.compare(verticesDistances.get(e1), verticesDistances.get(e2)));
-            if (minimumDistanceUnvisited.equals(destinationVertex))
-                break;
-            unvisitedVertices.remove(minimumDistanceUnvisited);
-
-            unvisitedNeighboursOf(minimumDistanceUnvisited, unvisitedVertices).forEach(v -> {
-                int distance = verticesDistances.get(minimumDistanceUnvisited)
-                        + shortestEdgeBetween(minimumDistanceUnvisited, v).getWeight();
-                if (distance < verticesDistances.get(v)) {
-                    verticesDistances.put(v, distance);
-                    previousVertices.put(v, minimumDistanceUnvisited);
-                }
-            });
-        }
+    @Override
+    public CompletableFuture<List<Edge<V>>> getPathAsync(V sourceVertex, V destinationVertex, Executor executor) {
+        return inFlightQueries.getPath(sourceVertex, destinationVertex, executor);
+    }
+
+    private PathStrategy defaultStrategy() {
+        return maxEdgeWeight.get() <= BUCKET_QUEUE_WEIGHT_LIMIT ? PathStrategy.BUCKET_QUEUE : PathStrategy.DIJKSTRA;
+    }
 
-        V v = destinationVertex;
-        List<V> pathVertices = new ArrayList<>();
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
 
-        do {
-            pathVertices.add(0, v);
-            v = previousVertices.get(v);
-        } while (v != null);
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic can't be null");
+        }
+        if (sourceVertex.equals(destinationVertex) || !vertices.contains(sourceVertex)
+                || !vertices.contains(destinationVertex) || !mayReach(sourceVertex, destinationVertex)) {
+            return new ArrayList<>();
+        }
+        // the heuristic may query this graph, so the thread's context isn't free
+        return DijkstraSearch.findPath(lightestEdges, heuristic, new PathQueryContext(), sourceVertex,
+                destinationVertex);
+    }
 
-        if (pathVertices.isEmpty())
-            return result;
-        v = pathVertices.get(0);
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return new DijkstraSearch<>(lightestEdges).findPaths(sourceVertex, null);
+    }
 
-        for (int i = 0; i < pathVertices.size() - 1; i++) {
-            result.add(shortestEdgeBetween(pathVertices.get(i), pathVertices.get(i + 1)));
+    @Override
+    public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        if (sourceVertex == null || destinationVertices == null) {
+            throw new IllegalArgumentException("Vertices can't be null");
         }
+        Set<V> destinations = new HashSet<>();
+        for (V destination : destinationVertices) {
+            if (vertices.contains(destination)) {
+                destinations.add(destination);
+            }
+        }
+        return new DijkstraSearch<>(lightestEdges).findPaths(sourceVertex, destinations);
+    }
 
-        return result;
+    /**
+     * Vertices of different {@link #components} are rejected at once, the rest
+     * is answered by the {@link ReachabilityIndex} of the current version
+     */
+
+    @Override
+    public boolean isReachable(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (sourceVertex.equals(destinationVertex)) {
+            return true;
+        }
+        if (!vertices.contains(sourceVertex) || !vertices.contains(destinationVertex)
+                || !mayReach(sourceVertex, destinationVertex)) {
+            return false;
+        }
+        ReachabilityIndex<V> index = reachabilityIndex();
+        if (index.covers(sourceVertex) && index.covers(destinationVertex)) {
+            return index.isReachable(sourceVertex, destinationVertex);
+        }
+        // added concurrently with the index build
+        return !getPath(sourceVertex, destinationVertex).isEmpty();
     }
 
     @Override
@@ -184,16 +331,72 @@ public class DirectedGraph<V> implements Graph<V> {
         return vertices.stream().map(function).collect(Collectors.toList());
     }
 
-    private List<V> unvisitedNeighboursOf(V v, Set<V> unvisitedVertices) {
-        if(outgoingEdges.get(v) == null) return new ArrayList<>();
-        return outgoingEdges.get(v).stream().map(e -> e.getOtherVertex(v)).distinct().filter(vv -> unvisitedVertices.contains(vv))
-                .collect(Collectors.toList());
+    @Override
+    public void forEachVertex(Consumer<? super V> action) {
+        vertices.forEach(action);
+    }
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<V>> action) {
+        edges.forEach(action);
+    }
+
+    @Override
+    public Stream<V> vertexStream() {
+        return vertices.stream();
+    }
+
+    @Override
+    public Graph<V> snapshot() {
+        return new CsrGraph<>(vertices, lightestEdges);
     }
 
-    private Edge<V> shortestEdgeBetween(V vertexA, V vertexB) {
-        Set<Edge<V>> intersection = new HashSet<>(outgoingEdges.get(vertexA));
-        intersection.retainAll(incomingEdges.get(vertexB));
-        return Collections.min(intersection, (e1, e2) -> Integer.compare(e1.getWeight(), e2.getWeight()));
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return false if no path can lead from sourceVertex to destinationVertex
+     */
+
+    protected boolean mayReach(V sourceVertex, V destinationVertex) {
+        return components == null || components.connected(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * @return reachability index of the current version, rebuilt if the graph
+     *         has changed
+     */
+
+    ReachabilityIndex<V> reachabilityIndex() {
+        ReachabilityIndex<V> current = reachabilityIndex;
+        long currentVersion = version.get();
+        if (current == null || current.getVersion() != currentVersion) {
+            current = new ReachabilityIndex<>(vertices, lightestEdges, currentVersion);
+            reachabilityIndex = current;
+        }
+        return current;
+    }
+
+    private void indexLightestEdge(Edge<V> edge) {
+        maxEdgeWeight.accumulateAndGet(edge.getWeight(), Math::max);
+        indexLightestEdge(edge.getSource(), edge.getDestination(), edge);
+        if (edge.startsAt(edge.getDestination())) {
+            indexLightestEdge(edge.getDestination(), edge.getSource(), edge);
+        }
+    }
+
+    private void indexLightestEdge(V from, V to, Edge<V> edge) {
+        Map<V, Edge<V>> neighbours = lightestEdges.get(from);
+        if (neighbours == null) {
+            neighbours = new HashMap<>();
+            lightestEdges.put(from, neighbours);
+        }
+        Edge<V> lightest = neighbours.get(to);
+        if (lightest == null || edge.getWeight() < lightest.getWeight()) {
+            neighbours.put(to, edge);
+        }
     }
 
 }
@@ -0,0 +1,347 @@
+package ru.krushnyakov.natera.lib;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parallel reader of CSV and TSV edge lists, one edge per line:
+ *
+ * <pre>
+ * source,destination[,weight[,directed]]
+ * </pre>
+ *
+ * Weight defaults to 1, directed is 1/true or 0/false and defaults to true.
+ * Empty lines and lines starting with # are skipped, fields are not quoted.
+ *
+ * The file is read with NIO in large chunks cut at line ends, and the chunks
+ * are parsed by worker threads. Parsed batches are handed over in the calling
+ * thread, so the receiving graph doesn't have to be thread safe. Reading
+ * pauses while maxPendingChunks chunks are read but not handed over yet, which
+ * bounds the memory of the pipeline whatever the file size.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public final class EdgeListReader<V> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+
+    private final Function<String, V> vertexParser;
+
+    private byte delimiter;
+
+    private boolean skipHeader;
+
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 0 for twice the parallelism
+     */
+    private int maxPendingChunks;
+
+    /**
+     * @param vertexParser makes a vertex of its text, e.g. Integer::valueOf
+     */
+
+    public EdgeListReader(Function<String, V> vertexParser) {
+        if (vertexParser == null) {
+            throw new IllegalArgumentException("Vertex parser can't be null!");
+        }
+        this.vertexParser = vertexParser;
+    }
+
+    /**
+     * @param delimiter the only field delimiter, by default both comma and tab
+     *                  are
+     * @return this reader
+     */
+
+    public EdgeListReader<V> delimiter(char delimiter) {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be an ASCII character other than line end!");
+        }
+        this.delimiter = (byte) delimiter;
+        return this;
+    }
+
+    /**
+     * @param skipHeader ignore the first line of the file
+     * @return this reader
+     */
+
+    public EdgeListReader<V> skipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+        return this;
+    }
+
+    /**
+     * @param chunkSize bytes read at once and parsed by one worker
+     * @return this reader
+     */
+
+    public EdgeListReader<V> chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * @param parallelism number of parsing threads
+     * @return this reader
+     */
+
+    public EdgeListReader<V> parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive!");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param maxPendingChunks chunks read ahead of the receiving graph, the
+     *                         pipeline holds at most that many chunks and
+     *                         their edges, twice the parallelism by default
+     * @return this reader
+     */
+
+    public EdgeListReader<V> maxPendingChunks(int maxPendingChunks) {
+        if (maxPendingChunks < 1) {
+            throw new IllegalArgumentException("Max pending chunks must be positive!");
+        }
+        this.maxPendingChunks = maxPendingChunks;
+        return this;
+    }
+
+    /**
+     * Adds the edges of the file to graph
+     *
+     * @param path
+     * @param graph
+     * @return volume and throughput of the run
+     * @throws IOException
+     */
+
+    public IngestionStatistics read(Path path, Graph<V> graph) throws IOException {
+        if (graph == null) {
+            throw new IllegalArgumentException("Graph can't be null!");
+        }
+        return read(path, batch -> batch.forEach(graph::addEdge));
+    }
+
+    /**
+     * Hands the edges of the file over in batches, one per chunk, in no
+     * particular order
+     *
+     * @param path
+     * @param batches receives the batches in the calling thread
+     * @return volume and throughput of the run
+     * @throws IOException
+     */
+
+    public IngestionStatistics read(Path path, Consumer<? super List<Edge<V>>> batches) throws IOException {
+        if (path == null || batches == null) {
+            throw new IllegalArgumentException("Path and batch consumer can't be null!");
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
+        long edges = 0;
+        int pending = 0;
+        int pendingLimit = maxPendingChunks > 0 ? maxPendingChunks : 2 * parallelism;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        CompletionService<List<Edge<V>>> parsed = new ExecutorCompletionService<>(pool);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            byte[] carry = new byte[0];
+            long chunkOffset = 0;
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                byte[] chunk = Arrays.copyOf(carry, carry.length + chunkSize);
+                ByteBuffer target = ByteBuffer.wrap(chunk, carry.length, chunkSize);
+                while (target.hasRemaining() && !endOfFile) {
+                    endOfFile = channel.read(target) < 0;
+                }
+                int length = target.position();
+                bytes += length - carry.length;
+                int end = endOfFile ? length : lastLineEnd(chunk, length);
+                if (end == 0 && !endOfFile) {
+                    // line longer than the chunk
+                    carry = Arrays.copyOf(chunk, length);
+                    continue;
+                }
+                carry = Arrays.copyOfRange(chunk, end, length);
+                if (end == 0) {
+                    continue;
+                }
+                if (pending == pendingLimit) {
+                    edges += handOver(parsed, batches);
+                    pending--;
+                }
+                long offset = chunkOffset;
+                parsed.submit(() -> parse(chunk, end, offset));
+                pending++;
+                chunkOffset += end;
+            }
+            for (; pending > 0; pending--) {
+                edges += handOver(parsed, batches);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return new IngestionStatistics(bytes, edges, System.nanoTime() - start);
+    }
+
+    private int handOver(CompletionService<List<Edge<V>>> parsed, Consumer<? super List<Edge<V>>> batches) {
+        try {
+            List<Edge<V>> batch = parsed.take().get();
+            batches.accept(batch);
+            return batch.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Edge list reading interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param chunk  lines to parse
+     * @param length bytes of the chunk holding whole lines
+     * @param offset position of the chunk in the file
+     */
+
+    private List<Edge<V>> parse(byte[] chunk, int length, long offset) {
+        List<Edge<V>> edges = new ArrayList<>(length / 16);
+        int line = 0;
+        if (skipHeader && offset == 0) {
+            line = indexOf(chunk, (byte) '\n', 0, length) + 1;
+        }
+        while (line < length) {
+            int end = indexOf(chunk, (byte) '\n', line, length);
+            int stop = end > line && chunk[end - 1] == '\r' ? end - 1 : end;
+            if (stop > line && chunk[line] != '#') {
+                edges.add(parseEdge(chunk, line, stop, offset));
+            }
+            line = end + 1;
+        }
+        return edges;
+    }
+
+    private Edge<V> parseEdge(byte[] chunk, int from, int to, long offset) {
+        int[] bounds = new int[8];
+        int fields = 0;
+        int field = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || isDelimiter(chunk[i])) {
+                if (fields == 4) {
+                    throw malformed(chunk, from, to, offset);
+                }
+                bounds[2 * fields] = field;
+                bounds[2 * fields + 1] = i;
+                fields++;
+                field = i + 1;
+            }
+        }
+        if (fields < 2) {
+            throw malformed(chunk, from, to, offset);
+        }
+        V source = vertexParser.apply(text(chunk, bounds[0], bounds[1]));
+        V destination = vertexParser.apply(text(chunk, bounds[2], bounds[3]));
+        int weight = fields > 2 ? parseWeight(chunk, bounds[4], bounds[5], from, to, offset) : 1;
+        boolean directed = fields < 4 || parseDirected(chunk, bounds[6], bounds[7], from, to, offset);
+        return directed ? new DirectedEdge<>(source, destination, weight)
+                : new UndirectedEdge<>(source, destination, weight);
+    }
+
+    private int parseWeight(byte[] chunk, int from, int to, int lineFrom, int lineTo, long offset) {
+        String weight = text(chunk, from, to);
+        if (weight.isEmpty()) {
+            throw malformed(chunk, lineFrom, lineTo, offset);
+        }
+        long value = 0;
+        for (int i = 0; i < weight.length(); i++) {
+            char c = weight.charAt(i);
+            if (c < '0' || c > '9' || (value = value * 10 + c - '0') > Integer.MAX_VALUE) {
+                throw malformed(chunk, lineFrom, lineTo, offset);
+            }
+        }
+        return (int) value;
+    }
+
+    private boolean parseDirected(byte[] chunk, int from, int to, int lineFrom, int lineTo, long offset) {
+        String directed = text(chunk, from, to);
+        if (directed.equals("1") || directed.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (directed.equals("0") || directed.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw malformed(chunk, lineFrom, lineTo, offset);
+    }
+
+    private boolean isDelimiter(byte b) {
+        return delimiter == 0 ? b == ',' || b == '\t' : b == delimiter;
+    }
+
+    /**
+     * @return field text without surrounding spaces
+     */
+
+    private static String text(byte[] chunk, int from, int to) {
+        while (from < to && chunk[from] == ' ') {
+            from++;
+        }
+        while (to > from && chunk[to - 1] == ' ') {
+            to--;
+        }
+        return new String(chunk, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static IllegalArgumentException malformed(byte[] chunk, int from, int to, long offset) {
+        return new IllegalArgumentException("Malformed edge at byte " + (offset + from) + ": "
+                + new String(chunk, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    private static int lastLineEnd(byte[] chunk, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (chunk[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return index of value, to if there is none
+     */
+
+    private static int indexOf(byte[] chunk, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chunk[i] == value) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+}
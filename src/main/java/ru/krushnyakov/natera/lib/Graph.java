@@ -1,7 +1,20 @@
 package ru.krushnyakov.natera.lib;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface Graph<V> {
 
@@ -18,6 +31,302 @@ public interface Graph<V> {
 
     List<Edge<V>> getPath(V sourceVertex, V destinationVertex);
 
+    /**
+     * Searches with the buffers of context instead of the graph's own, so
+     * callers can reuse them from query to query
+     *
+     * @param sourceVertex
+     * @param destinationVertex
+     * @param context           buffers of one query at a time
+     * @return List of edges contained in the result path
+     */
+
+    default List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathQueryContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Path query context can't be null");
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * Searches the path on the common fork join pool
+     *
+     * @see #getPathAsync(Object, Object, Executor)
+     */
+
+    default CompletableFuture<List<Edge<V>>> getPathAsync(V sourceVertex, V destinationVertex) {
+        return getPathAsync(sourceVertex, destinationVertex, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Searches the path on executor, e.g. Executors.newVirtualThreadPerTaskExecutor()
+     * on JDK 21 and later. Graphs of the {@link SimpleGraphLib} factories
+     * coalesce identical queries running at the same time into one search.
+     *
+     * @param sourceVertex
+     * @param destinationVertex
+     * @param executor          runs the search
+     * @return List of edges contained in the result path, completed
+     *         exceptionally if the search fails
+     */
+
+    default CompletableFuture<List<Edge<V>>> getPathAsync(V sourceVertex, V destinationVertex, Executor executor) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor can't be null!");
+        }
+        return CompletableFuture.supplyAsync(() -> getPath(sourceVertex, destinationVertex), executor);
+    }
+
+    /**
+     *
+     * @param sourceVertex
+     * @param destinationVertex
+     * @param strategy algorithm to search the path with, graphs which don't
+     *                 specialize it answer with {@link #getPath(Object, Object)}
+     * @return List of edges contained in the result path
+     */
+
+    default List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * https://en.wikipedia.org/wiki/A*_search_algorithm search guided by a
+     * domain specific estimate, for example straight line distance between
+     * geographic vertices. Graphs without A* ignore the heuristic, an admissible
+     * one doesn't change the result.
+     *
+     * @param sourceVertex
+     * @param destinationVertex
+     * @param heuristic admissible estimate of the remaining path weight from a
+     *                  vertex to destinationVertex: non negative and never
+     *                  greater than the real one
+     * @return List of edges contained in the result path
+     */
+
+    default List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic can't be null");
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * Searches shortest paths from the source to every reachable vertex. Graphs
+     * without a single source search answer with a getPath query per vertex.
+     *
+     * @param sourceVertex
+     * @return reusable tree of the shortest paths
+     */
+
+    default ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        List<V> vertices = new ArrayList<>();
+        forEachVertex(vertices::add);
+        return new PointToPointPathTree<>(this, sourceVertex, vertices);
+    }
+
+    /**
+     * Searches shortest paths from the source to every reachable vertex
+     *
+     * @param sourceVertex
+     * @param strategy     algorithm to search the paths with, graphs which
+     *                     don't specialize it answer with
+     *                     {@link #getPathsFrom(Object)}
+     * @return reusable tree of the shortest paths
+     */
+
+    default ShortestPathTree<V> getPathsFrom(V sourceVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        return getPathsFrom(sourceVertex);
+    }
+
+    /**
+     * Searches shortest paths from the source until every destination is
+     * settled, so the search stops early when destinations are close. Graphs
+     * without a single source search answer with a getPath query per
+     * destination.
+     *
+     * @param sourceVertex
+     * @param destinationVertices
+     * @return tree holding shortest paths to at least every reachable
+     *         destination
+     */
+
+    default ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        if (sourceVertex == null || destinationVertices == null) {
+            throw new IllegalArgumentException("Vertices can't be null");
+        }
+        return new PointToPointPathTree<>(this, sourceVertex, new HashSet<>(destinationVertices));
+    }
+
+    /**
+     * Graphs keeping a connectivity index answer without searching when there
+     * is no path
+     *
+     * @param sourceVertex
+     * @param destinationVertex
+     * @return true if a path leads from sourceVertex to destinationVertex,
+     *         every vertex reaches itself
+     */
+
+    default boolean isReachable(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return sourceVertex.equals(destinationVertex) || !getPath(sourceVertex, destinationVertex).isEmpty();
+    }
+
     List<?> traverse(Function<V, ?> function);
 
-}
\ No newline at end of file
+    /**
+     * Applies function to the vertices in parallel. The parallelism of the
+     * common {@link ForkJoinPool} runs there, any other one on a pool created
+     * and shut down by the call, callers traversing often should pass their own
+     * pool to {@link #traverse(Function, ForkJoinPool)}
+     *
+     * @param function
+     * @param parallelism number of worker threads, 1 runs in the calling thread
+     * @return results in the order of {@link #vertexStream()}
+     */
+
+    default List<?> traverse(Function<V, ?> function, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive!");
+        }
+        if (parallelism == 1) {
+            return vertexStream().map(function).collect(Collectors.toList());
+        }
+        if (parallelism == ForkJoinPool.getCommonPoolParallelism()) {
+            return traverse(function, ForkJoinPool.commonPool());
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return traverse(function, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Applies function to the vertices in parallel on the given pool. The JDK
+     * forks the tasks of a parallel stream into the pool of the thread running
+     * its terminal operation, or into the common pool outside of any pool. The
+     * Stream API doesn't specify that, but it's what confines the traversal to
+     * pool: the stream is collected in a task submitted to it, or right in the
+     * calling thread when that is already a worker of pool or pool is the
+     * common one.
+     *
+     * @param function
+     * @param pool     runs the traversal, it isn't shut down
+     * @return results in the order of {@link #vertexStream()}
+     */
+
+    default List<?> traverse(Function<V, ?> function, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can't be null!");
+        }
+        if (pool == ForkJoinPool.commonPool() || ForkJoinTask.getPool() == pool) {
+            return vertexStream().parallel().map(function).collect(Collectors.toList());
+        }
+        try {
+            return pool.submit(() -> vertexStream().parallel().map(function).collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Traverse interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Applies action to every vertex without collecting any results, graphs
+     * without their own iteration go through {@link #traverse(Function)}
+     *
+     * @param action
+     */
+
+    default void forEachVertex(Consumer<? super V> action) {
+        traverse(vertex -> {
+            action.accept(vertex);
+            return null;
+        });
+    }
+
+    /**
+     * Applies action to every edge. Graphs which can't list their edges pass the
+     * last edge of the shortest path from every vertex to every other one
+     * instead: a subgraph with the same vertices and path weights, found by a
+     * {@link #getPathsFrom(Object)} search per vertex, so V² getPath searches
+     * when that is answered by point to point queries.
+     *
+     * @param action
+     */
+
+    default void forEachEdge(Consumer<? super Edge<V>> action) {
+        List<V> vertices = new ArrayList<>();
+        forEachVertex(vertices::add);
+        Set<Edge<V>> edges = new HashSet<>();
+        for (V source : vertices) {
+            ShortestPathTree<V> tree = getPathsFrom(source);
+            for (V destination : vertices) {
+                List<Edge<V>> path = tree.getPathTo(destination);
+                if (!path.isEmpty() && edges.add(path.get(path.size() - 1))) {
+                    action.accept(path.get(path.size() - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return stream of the vertices, its spliterator splits for parallel
+     *         processing. Graphs without their own stream copy the vertices
+     *         first.
+     */
+
+    default Stream<V> vertexStream() {
+        List<V> vertices = new ArrayList<>();
+        forEachVertex(vertices::add);
+        return vertices.stream();
+    }
+
+    /**
+     * Freezes current state of the graph into an immutable, compact
+     * representation tuned for read-only queries. Graphs without their own
+     * are copied into a {@link CsrGraph} through {@link #forEachVertex(Consumer)}
+     * and {@link #forEachEdge(Consumer)}, see its cost there.
+     *
+     * @return immutable graph with the same vertices and paths
+     */
+
+    default Graph<V> snapshot() {
+        return CsrGraph.copyOf(this);
+    }
+
+    /**
+     * Modification counter, grows with every addVertex and addEdge call. Equal
+     * versions mean equal graph contents, so results computed at a version may
+     * be reused while it doesn't change. Graphs which don't count their
+     * modifications return a new version on every call.
+     *
+     * @return current version of the graph
+     */
+
+    default long getVersion() {
+        return UntrackedVersions.next();
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,338 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Bulk loader of graphs. Edges are only collected until a
+ * {@link GraphFactory} builds the graph, then vertex degrees are counted and
+ * every adjacency set and map is allocated with its final size, so the load
+ * neither rehashes nor creates garbage per edge.
+ *
+ * With parallelism above 1 vertices are split into partitions by hash and every
+ * worker fills the adjacency of its own partition only, so no locks are taken.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public class GraphBuilder<V> {
+
+    private final List<V> vertices = new ArrayList<>();
+
+    private List<Edge<V>> edges = new ArrayList<>();
+
+    private int parallelism = 1;
+
+    /**
+     * @param edgeCount expected number of edges, saves growing the staging list
+     * @return this builder
+     */
+
+    public GraphBuilder<V> expectedEdges(int edgeCount) {
+        if (edgeCount < 0) {
+            throw new IllegalArgumentException("Edge count can't be negative!");
+        }
+        List<Edge<V>> presized = new ArrayList<>(Math.max(edgeCount, edges.size()));
+        presized.addAll(edges);
+        edges = presized;
+        return this;
+    }
+
+    /**
+     * @param parallelism number of worker threads building the adjacency, 1
+     *                    builds it in the calling thread
+     * @return this builder
+     */
+
+    public GraphBuilder<V> parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive!");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public GraphBuilder<V> addVertex(V vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        vertices.add(vertex);
+        return this;
+    }
+
+    public GraphBuilder<V> addEdge(Edge<V> edge) {
+        if (edge == null) {
+            throw new IllegalArgumentException("Edge can't be null!");
+        }
+        edges.add(edge);
+        return this;
+    }
+
+    public GraphBuilder<V> addEdges(Iterable<? extends Edge<V>> edges) {
+        if (edges == null) {
+            throw new IllegalArgumentException("Edges can't be null!");
+        }
+        edges.forEach(this::addEdge);
+        return this;
+    }
+
+    public GraphBuilder<V> addEdges(Stream<? extends Edge<V>> edges) {
+        if (edges == null) {
+            throw new IllegalArgumentException("Edges can't be null!");
+        }
+        edges.forEachOrdered(this::addEdge);
+        return this;
+    }
+
+    Set<V> vertexSet() {
+        Set<V> result = new HashSet<>(vertices);
+        edges.forEach(e -> {
+            result.add(e.getSource());
+            result.add(e.getDestination());
+        });
+        return result;
+    }
+
+    Set<Edge<V>> edgeSet() {
+        return new HashSet<>(edges);
+    }
+
+    /**
+     * @param undirected only accept {@link UndirectedEdge}s
+     * @param concurrent allocate concurrent sets and maps
+     * @return adjacency of the collected vertices and edges
+     */
+
+    Adjacency<V> build(boolean undirected, boolean concurrent) {
+        if (undirected && edges.stream().anyMatch(e -> e.getClass() != UndirectedEdge.class)) {
+            throw new IllegalArgumentException("Can initialize undirected graph only with undirected edges!");
+        }
+        Containers containers = concurrent ? Containers.CONCURRENT : Containers.HASH;
+
+        List<Callable<Map<V, int[]>>> counts = new ArrayList<>(parallelism);
+        for (int p = 0; p < parallelism; p++) {
+            int partition = p;
+            counts.add(() -> countDegrees(partition));
+        }
+        List<Map<V, int[]>> degrees = invokeAll(counts);
+
+        int vertexCount = vertices.size();
+        for (Map<V, int[]> partitionDegrees : degrees) {
+            vertexCount += partitionDegrees.size();
+        }
+        Adjacency<V> adjacency = new Adjacency<>(containers, vertexCount, edges.size());
+        for (Map<V, int[]> partitionDegrees : degrees) {
+            partitionDegrees.forEach((vertex, degree) -> {
+                adjacency.vertices.add(vertex);
+                if (degree[0] > 0) {
+                    adjacency.outgoingEdges.put(vertex, containers.newSet(degree[0]));
+                    adjacency.lightestEdges.put(vertex, containers.newMap(degree[0]));
+                }
+                if (degree[1] > 0) {
+                    adjacency.incomingEdges.put(vertex, containers.newSet(degree[1]));
+                }
+            });
+        }
+        adjacency.vertices.addAll(vertices);
+
+        List<Callable<Integer>> fills = new ArrayList<>(parallelism + 1);
+        fills.add(() -> {
+            adjacency.edges.addAll(edges);
+            return 0;
+        });
+        for (int p = 0; p < parallelism; p++) {
+            int partition = p;
+            fills.add(() -> fill(adjacency, partition));
+        }
+        for (int maxWeight : invokeAll(fills)) {
+            adjacency.maxWeight = Math.max(adjacency.maxWeight, maxWeight);
+        }
+        return adjacency;
+    }
+
+    /**
+     * @return out and in degrees of the vertices of the partition
+     */
+
+    private Map<V, int[]> countDegrees(int partition) {
+        Map<V, int[]> degrees = new HashMap<>();
+        for (Edge<V> edge : edges) {
+            V source = edge.getSource();
+            V destination = edge.getDestination();
+            boolean bothWays = edge.startsAt(destination);
+            if (partitionOf(source) == partition) {
+                int[] degree = degrees.computeIfAbsent(source, v -> new int[2]);
+                degree[0]++;
+                degree[1] += bothWays ? 1 : 0;
+            }
+            if (partitionOf(destination) == partition) {
+                int[] degree = degrees.computeIfAbsent(destination, v -> new int[2]);
+                degree[1]++;
+                degree[0] += bothWays ? 1 : 0;
+            }
+        }
+        return degrees;
+    }
+
+    /**
+     * Indexes edges at the vertices of the partition
+     *
+     * @return maximal weight of the indexed edges
+     */
+
+    private int fill(Adjacency<V> adjacency, int partition) {
+        int maxWeight = 0;
+        for (Edge<V> edge : edges) {
+            V source = edge.getSource();
+            V destination = edge.getDestination();
+            boolean bothWays = edge.startsAt(destination);
+            if (partitionOf(source) == partition) {
+                adjacency.indexOutgoing(source, destination, edge);
+                if (bothWays) {
+                    adjacency.incomingEdges.get(source).add(edge);
+                }
+                maxWeight = Math.max(maxWeight, edge.getWeight());
+            }
+            if (partitionOf(destination) == partition) {
+                adjacency.incomingEdges.get(destination).add(edge);
+                if (bothWays) {
+                    adjacency.indexOutgoing(destination, source, edge);
+                }
+            }
+        }
+        return maxWeight;
+    }
+
+    private int partitionOf(V vertex) {
+        if (parallelism == 1) {
+            return 0;
+        }
+        int hash = vertex.hashCode();
+        return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % parallelism;
+    }
+
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (parallelism == 1) {
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Graph build interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Presized adjacency structures of {@link DirectedGraph}
+     */
+    static final class Adjacency<V> {
+
+        final Set<V> vertices;
+
+        final Set<Edge<V>> edges;
+
+        final Map<V, Set<Edge<V>>> outgoingEdges;
+
+        final Map<V, Set<Edge<V>>> incomingEdges;
+
+        final Map<V, Map<V, Edge<V>>> lightestEdges;
+
+        final boolean concurrent;
+
+        int maxWeight;
+
+        Adjacency(Containers containers, int vertexCount, int edgeCount) {
+            this.concurrent = containers == Containers.CONCURRENT;
+            this.vertices = containers.newSet(vertexCount);
+            this.edges = containers.newSet(edgeCount);
+            this.outgoingEdges = containers.newMap(vertexCount);
+            this.incomingEdges = containers.newMap(vertexCount);
+            this.lightestEdges = containers.newMap(vertexCount);
+        }
+
+        private void indexOutgoing(V from, V to, Edge<V> edge) {
+            outgoingEdges.get(from).add(edge);
+            Map<V, Edge<V>> neighbours = lightestEdges.get(from);
+            Edge<V> lightest = neighbours.get(to);
+            if (lightest == null || edge.getWeight() < lightest.getWeight()) {
+                neighbours.put(to, edge);
+            }
+        }
+
+    }
+
+    private enum Containers {
+
+        HASH {
+            @Override
+            <T> Set<T> newSet(int size) {
+                return new HashSet<>(capacityOf(size));
+            }
+
+            @Override
+            <K, T> Map<K, T> newMap(int size) {
+                return new HashMap<>(capacityOf(size));
+            }
+        },
+
+        CONCURRENT {
+            @Override
+            <T> Set<T> newSet(int size) {
+                return ConcurrentHashMap.newKeySet(capacityOf(size));
+            }
+
+            @Override
+            <K, T> Map<K, T> newMap(int size) {
+                return new ConcurrentHashMap<>(capacityOf(size));
+            }
+        };
+
+        abstract <T> Set<T> newSet(int size);
+
+        abstract <K, T> Map<K, T> newMap(int size);
+
+        /**
+         * @return capacity holding size entries without a rehash at the default
+         *         load factor
+         */
+
+        static int capacityOf(int size) {
+            return (int) Math.min(Integer.MAX_VALUE, size * 4L / 3 + 1);
+        }
+
+    }
+
+}
@@ -11,5 +11,64 @@ public interface GraphFactory {
     <V> Graph<V> createDirectedGraph();
      
     <V> Graph<V> createDirectedGraph(Set<V> vertices, Set<Edge<V>> edges);
+
+    /**
+     * Bulk loads the vertices and edges collected by builder
+     * 
+     * @param builder
+     * @return undirected graph
+     */
+
+    default <V> Graph<V> createUndirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return createUndirectedGraph(builder.vertexSet(), builder.edgeSet());
+    }
+
+    /**
+     * Bulk loads the vertices and edges collected by builder
+     * 
+     * @param builder
+     * @return directed graph
+     */
+
+    default <V> Graph<V> createDirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return createDirectedGraph(builder.vertexSet(), builder.edgeSet());
+    }
+
+    /**
+     * Int graphs are the same whatever the factory and not thread safe, share
+     * their {@link IntGraph#snapshot() snapshots} between threads
+     * 
+     * @return directed graph of int vertices
+     */
+
+    default IntGraph createIntDirectedGraph() {
+        return new IntDirectedGraph();
+    }
+
+    /**
+     * @see #createIntDirectedGraph()
+     * @return undirected graph of int vertices
+     */
+
+    default IntGraph createIntUndirectedGraph() {
+        return new IntUndirectedGraph();
+    }
+
+    /**
+     * Freezes graph into an immutable snapshot, safe to share between threads
+     * 
+     * @param graph
+     * @return immutable graph
+     */
+
+    default <V> Graph<V> createSnapshot(Graph<V> graph) {
+        return graph.snapshot();
+    }
      
 }
@@ -0,0 +1,269 @@
+package ru.krushnyakov.natera.lib;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Binary graph file opened by memory mapping, so a graph is queryable right
+ * after {@link #open(Path, VertexSerializer)} without a deserialization pass.
+ *
+ * Layout, all numbers big endian:
+ * <ul>
+ * <li>header: magic, format version, vertex count, edge count, maximal
+ * weight, hash table capacity, dictionary length, reserved int and CRC32
+ * checksum long of everything after the header</li>
+ * <li>CSR offsets, targets and weights int arrays, as in {@link CsrGraph}</li>
+ * <li>dictionary positions of every vertex, int array of vertex count + 1</li>
+ * <li>open addressing hash table of vertex ids + 1 keyed by the vertex
+ * bytes</li>
+ * <li>edge flag bytes: undirected edge, edge stored against its
+ * direction</li>
+ * <li>vertex dictionary: serialized vertices one after another</li>
+ * </ul>
+ * The whole file is one mapping, so it is limited to 2 GB.
+ *
+ * @author kkrushnyakov
+ *
+ */
+public final class GraphFile {
+
+    static final int MAGIC = 0x4E475246;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_SIZE = 40;
+
+    static final int VERTEX_COUNT = 8;
+
+    static final int EDGE_COUNT = 12;
+
+    static final int MAX_WEIGHT = 16;
+
+    static final int TABLE_CAPACITY = 20;
+
+    static final int DICTIONARY_LENGTH = 24;
+
+    static final int CHECKSUM = 32;
+
+    static final byte UNDIRECTED = 1;
+
+    static final byte REVERSED = 2;
+
+    private GraphFile() {
+    }
+
+    /**
+     * Writes the snapshot of graph to path, replacing the file. Edges are
+     * stored as {@link DirectedEdge}s and {@link UndirectedEdge}s, and like in
+     * the snapshot only the lightest edge of every adjacent vertex pair is kept.
+     *
+     * @param graph
+     * @param path
+     * @param serializer
+     * @throws IOException
+     */
+
+    public static <V> void write(Graph<V> graph, Path path, VertexSerializer<V> serializer) throws IOException {
+        if (graph == null || path == null || serializer == null) {
+            throw new IllegalArgumentException("Graph, path and serializer can't be null!");
+        }
+        Graph<V> frozen = graph.snapshot();
+        if (frozen instanceof CsrGraph) {
+            CsrGraph<V> snapshot = (CsrGraph<V>) frozen;
+            write(snapshot, snapshot::vertexAt, snapshot::edgeAt, path, serializer);
+        } else if (frozen instanceof MappedGraph) {
+            MappedGraph<V> mapped = (MappedGraph<V>) frozen;
+            write(mapped, mapped::vertexAt, mapped::edgeAt, path, serializer);
+        } else {
+            throw new IllegalArgumentException("Graph snapshot must be a CsrGraph!");
+        }
+    }
+
+    /**
+     * Maps the file checking its header only
+     *
+     * @param path
+     * @param serializer
+     * @return immutable graph backed by the mapped file
+     * @throws IOException if the file is not a graph file
+     */
+
+    public static <V> MappedGraph<V> open(Path path, VertexSerializer<V> serializer) throws IOException {
+        return open(path, serializer, false);
+    }
+
+    /**
+     * @param path
+     * @param serializer
+     * @param verifyChecksum read the whole file to check its checksum, costs a
+     *                       pass over the file
+     * @return immutable graph backed by the mapped file
+     * @throws IOException if the file is not a graph file or is corrupted
+     */
+
+    public static <V> MappedGraph<V> open(Path path, VertexSerializer<V> serializer, boolean verifyChecksum)
+            throws IOException {
+        if (path == null || serializer == null) {
+            throw new IllegalArgumentException("Path and serializer can't be null!");
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a graph file: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a graph file: " + path);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported graph file version " + buffer.getInt(4) + ": " + path);
+        }
+        int vertexCount = buffer.getInt(VERTEX_COUNT);
+        int edgeCount = buffer.getInt(EDGE_COUNT);
+        int tableCapacity = buffer.getInt(TABLE_CAPACITY);
+        int dictionaryLength = buffer.getInt(DICTIONARY_LENGTH);
+        if (vertexCount < 0 || edgeCount < 0 || dictionaryLength < 0 || tableCapacity <= vertexCount
+                || Integer.bitCount(tableCapacity) != 1
+                || sizeOf(vertexCount, edgeCount, tableCapacity, dictionaryLength) != buffer.capacity()) {
+            throw new IOException("Graph file is truncated: " + path);
+        }
+        if (verifyChecksum && checksumOf(buffer) != buffer.getLong(CHECKSUM)) {
+            throw new IOException("Graph file checksum mismatch: " + path);
+        }
+        return new MappedGraph<>(buffer, serializer);
+    }
+
+    private static <V> void write(IntAdjacency adjacency, IntFunction<V> vertexAt, IntFunction<Edge<V>> edgeAt,
+            Path path, VertexSerializer<V> serializer) throws IOException {
+        int vertexCount = adjacency.vertexCount();
+        byte[][] dictionary = new byte[vertexCount][];
+        long dictionaryLength = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            dictionary[v] = serializer.serialize(vertexAt.apply(v));
+            dictionaryLength += dictionary[v].length;
+        }
+        long edges = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            edges += degreeOf(adjacency, v);
+        }
+        int tableCapacity = Integer.highestOneBit(Math.max(1, vertexCount) * 2 - 1) << 1;
+        long size = sizeOf(vertexCount, edges, tableCapacity, dictionaryLength);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Graph is too large for a graph file!");
+        }
+        int edgeCount = (int) edges;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            int offsets = HEADER_SIZE;
+            int targets = offsets + (vertexCount + 1) * Integer.BYTES;
+            int weights = targets + edgeCount * Integer.BYTES;
+            int positions = weights + edgeCount * Integer.BYTES;
+            int table = positions + (vertexCount + 1) * Integer.BYTES;
+            int flags = table + tableCapacity * Integer.BYTES;
+            int vertices = flags + edgeCount;
+
+            int[] slot = new int[1];
+            int[] maxWeight = new int[1];
+            int position = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                V source = vertexAt.apply(v);
+                buffer.putInt(offsets + v * Integer.BYTES, slot[0]);
+                buffer.putInt(positions + v * Integer.BYTES, position);
+                position += dictionary[v].length;
+                adjacency.forEachOutgoing(v, (target, weight, edgeSlot) -> {
+                    Edge<V> edge = edgeAt.apply(edgeSlot);
+                    byte flag = edge.getClass() == UndirectedEdge.class ? UNDIRECTED : 0;
+                    if (!edge.getSource().equals(source)) {
+                        flag |= REVERSED;
+                    }
+                    buffer.putInt(targets + slot[0] * Integer.BYTES, target);
+                    buffer.putInt(weights + slot[0] * Integer.BYTES, weight);
+                    buffer.put(flags + slot[0], flag);
+                    maxWeight[0] = Math.max(maxWeight[0], weight);
+                    slot[0]++;
+                });
+            }
+            buffer.putInt(offsets + vertexCount * Integer.BYTES, slot[0]);
+            buffer.putInt(positions + vertexCount * Integer.BYTES, position);
+
+            for (int v = 0; v < vertexCount; v++) {
+                int bucket = hashOf(dictionary[v]) & (tableCapacity - 1);
+                while (buffer.getInt(table + bucket * Integer.BYTES) != 0) {
+                    bucket = (bucket + 1) & (tableCapacity - 1);
+                }
+                buffer.putInt(table + bucket * Integer.BYTES, v + 1);
+            }
+            position(buffer, vertices);
+            for (byte[] bytes : dictionary) {
+                buffer.put(bytes);
+            }
+
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putInt(VERTEX_COUNT, vertexCount);
+            buffer.putInt(EDGE_COUNT, edgeCount);
+            buffer.putInt(MAX_WEIGHT, maxWeight[0]);
+            buffer.putInt(TABLE_CAPACITY, tableCapacity);
+            buffer.putInt(DICTIONARY_LENGTH, (int) dictionaryLength);
+            buffer.putLong(CHECKSUM, checksumOf(buffer));
+            buffer.force();
+        }
+    }
+
+    /**
+     * Stable across JVMs unlike {@link Object#hashCode()}
+     */
+
+    static int hashOf(byte[] bytes) {
+        int hash = 1;
+        for (byte b : bytes) {
+            hash = 31 * hash + b;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        return hash ^ (hash >>> 13);
+    }
+
+    /**
+     * Sets the position through {@link Buffer}, ByteBuffer overrides it only
+     * since Java 9
+     */
+
+    static void position(Buffer buffer, int position) {
+        buffer.position(position);
+    }
+
+    static void limit(Buffer buffer, int limit) {
+        buffer.limit(limit);
+    }
+
+    private static long checksumOf(ByteBuffer buffer) {
+        ByteBuffer body = buffer.duplicate();
+        position(body, HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    private static long sizeOf(long vertexCount, long edgeCount, long tableCapacity, long dictionaryLength) {
+        return HEADER_SIZE + (vertexCount + 1) * Integer.BYTES * 2 + edgeCount * (Integer.BYTES * 2 + 1)
+                + tableCapacity * Integer.BYTES + dictionaryLength;
+    }
+
+    private static int degreeOf(IntAdjacency adjacency, int vertex) {
+        int[] degree = new int[1];
+        adjacency.forEachOutgoing(vertex, (target, weight, slot) -> degree[0]++);
+        return degree[0];
+    }
+
+}
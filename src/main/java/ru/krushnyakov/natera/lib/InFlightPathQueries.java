@@ -0,0 +1,112 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous getPath with coalescing of identical queries: a query for the
+ * (source, destination) pair of a query still running at the same graph
+ * version joins it instead of searching again. Every caller gets its own copy
+ * of the shared path.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class InFlightPathQueries<V> {
+
+    private final Graph<V> graph;
+
+    private final ConcurrentMap<QueryKey<V>, CompletableFuture<List<Edge<V>>>> running = new ConcurrentHashMap<>();
+
+    /**
+     * @param graph answers the queries with its getPath, on the executor
+     *              threads
+     */
+
+    InFlightPathQueries(Graph<V> graph) {
+        this.graph = graph;
+    }
+
+    CompletableFuture<List<Edge<V>>> getPath(V sourceVertex, V destinationVertex, Executor executor) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor can't be null!");
+        }
+        QueryKey<V> key = new QueryKey<>(sourceVertex, destinationVertex, graph.getVersion());
+        CompletableFuture<List<Edge<V>>> query = running.get(key);
+        if (query == null) {
+            CompletableFuture<List<Edge<V>>> created = new CompletableFuture<>();
+            query = running.putIfAbsent(key, created);
+            if (query == null) {
+                query = created;
+                start(key, created, executor);
+            }
+        }
+        return query.thenApply(ArrayList::new);
+    }
+
+    /**
+     * @return number of queries running now
+     */
+
+    int size() {
+        return running.size();
+    }
+
+    private void start(QueryKey<V> key, CompletableFuture<List<Edge<V>>> query, Executor executor) {
+        try {
+            executor.execute(() -> {
+                try {
+                    query.complete(graph.getPath(key.source, key.destination));
+                } catch (Throwable e) {
+                    query.completeExceptionally(e);
+                } finally {
+                    running.remove(key, query);
+                }
+            });
+        } catch (RuntimeException e) {
+            // rejected by the executor, joined callers fail too
+            running.remove(key, query);
+            query.completeExceptionally(e);
+        }
+    }
+
+    private static final class QueryKey<V> {
+
+        private final V source;
+
+        private final V destination;
+
+        private final long version;
+
+        QueryKey(V source, V destination, long version) {
+            this.source = source;
+            this.destination = destination;
+            this.version = version;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * source.hashCode() + destination.hashCode()) + Long.hashCode(version);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof QueryKey))
+                return false;
+            QueryKey<?> other = (QueryKey<?>) obj;
+            return version == other.version && source.equals(other.source) && destination.equals(other.destination);
+        }
+
+    }
+
+}
@@ -0,0 +1,146 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap over int ids with int keys and decrease-key support.
+ *
+ * https://en.wikipedia.org/wiki/Binary_heap
+ *
+ * @author kkrushnyakov
+ *
+ */
+final class IndexedMinHeap {
+
+    private int[] heap;
+
+    private int[] positions;
+
+    private int[] keys;
+
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        capacity = Math.max(capacity, 1);
+        this.heap = new int[capacity];
+        this.keys = new int[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return id < positions.length && positions[id] >= 0;
+    }
+
+    int keyOf(int id) {
+        return keys[id];
+    }
+
+    int peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Inserts id with the given key or lowers its key if id is already queued.
+     * Higher keys for already queued ids are ignored.
+     *
+     * @param id
+     * @param key
+     */
+
+    void insertOrDecrease(int id, int key) {
+        ensureIdCapacity(id);
+        int position = positions[id];
+        if (position < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            keys[id] = key;
+            heap[size] = id;
+            positions[id] = size;
+            siftUp(size++);
+        } else if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(position);
+        }
+    }
+
+    int pollMin() {
+        if (size == 0) {
+            throw new IllegalStateException("Heap is empty!");
+        }
+        int min = heap[0];
+        positions[min] = -1;
+        if (--size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void ensureIdCapacity(int id) {
+        if (id >= positions.length) {
+            int capacity = Math.max(id + 1, positions.length * 2);
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldLength, capacity, -1);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        int key = keys[id];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentId = heap[parent];
+            if (keys[parentId] <= key) {
+                break;
+            }
+            heap[position] = parentId;
+            positions[parentId] = position;
+            position = parent;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int childId = heap[child];
+            if (key <= keys[childId]) {
+                break;
+            }
+            heap[position] = childId;
+            positions[childId] = position;
+            position = child;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+}
@@ -0,0 +1,51 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Volume and throughput of one {@link EdgeListReader} run
+ *
+ * @author kkrushnyakov
+ *
+ */
+public final class IngestionStatistics {
+
+    private final long bytes;
+
+    private final long edges;
+
+    private final long elapsedNanos;
+
+    IngestionStatistics(long bytes, long edges, long elapsedNanos) {
+        this.bytes = bytes;
+        this.edges = edges;
+        this.elapsedNanos = Math.max(1, elapsedNanos);
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getEdges() {
+        return edges;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getMegabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public double getEdgesPerSecond() {
+        return (double) edges * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d edges, %d bytes in %d ms: %.1f MB/s, %.0f edges/s", edges, bytes,
+                getElapsed(TimeUnit.MILLISECONDS), getMegabytesPerSecond(), getEdgesPerSecond());
+    }
+
+}
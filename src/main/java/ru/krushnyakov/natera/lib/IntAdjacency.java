@@ -0,0 +1,36 @@
+package ru.krushnyakov.natera.lib;
+
+/**
+ * Read-only adjacency over dense int vertex ids 0..vertexCount()-1, shared by
+ * the primitive graph representations and their search engines.
+ *
+ * @author kkrushnyakov
+ *
+ */
+interface IntAdjacency {
+
+    int vertexCount();
+
+    /**
+     * Calls consumer for every edge leaving vertex
+     *
+     * @param vertex
+     * @param consumer
+     */
+
+    void forEachOutgoing(int vertex, IntEdgeConsumer consumer);
+
+    @FunctionalInterface
+    interface IntEdgeConsumer {
+
+        /**
+         * @param target vertex id the edge leads to
+         * @param weight edge weight
+         * @param slot   representation specific edge index
+         */
+
+        void accept(int target, int weight, int slot);
+
+    }
+
+}
@@ -0,0 +1,257 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * https://en.wikipedia.org/wiki/Dijkstra's_algorithm over an {@link IntAdjacency},
+ * or https://en.wikipedia.org/wiki/A*_search_algorithm when given a heuristic.
+ * 
+ * Buffers kept in a thread local must be created without an adjacency and
+ * be given one per query: a value referencing the graph that owns the thread
+ * local is never collected while the thread lives. Like {@link PathQueryContext}
+ * the buffers are cleared in O(1) by moving to the next epoch, so a reused
+ * search only pays for the vertices it reaches. Heuristics are given per query
+ * too, so A* queries reuse the buffers as well.
+ * 
+ * @author kkrushnyakov
+ *
+ */
+final class IntDijkstraSearch implements IntAdjacency.IntEdgeConsumer, IntPathTree {
+
+    private static final int[] NO_PATH = new int[0];
+
+    /**
+     * Null for buffers given the adjacency per query
+     */
+    private final IntAdjacency adjacency;
+
+    /**
+     * Epoch of the search that last reached each vertex, distances and parents
+     * of older epochs are stale
+     */
+    private final int[] stamps;
+
+    private int epoch;
+
+    private final int[] distances;
+
+    private final int[] parentVertices;
+
+    private final int[] parentSlots;
+
+    private final IndexedMinHeap heap;
+
+    /**
+     * Heuristic of the running A* query, null otherwise
+     */
+    private IntUnaryOperator heuristic;
+
+    /**
+     * True while a point to point query runs, its heuristic may query the same
+     * graph again
+     */
+    private boolean busy;
+
+    private int expandedVertex;
+
+    private int expandedDistance;
+
+    IntDijkstraSearch(IntAdjacency adjacency) {
+        this(adjacency, adjacency.vertexCount());
+    }
+
+    /**
+     * @param capacity number of vertices to size the buffers for
+     */
+
+    IntDijkstraSearch(int capacity) {
+        this(null, capacity);
+    }
+
+    private IntDijkstraSearch(IntAdjacency adjacency, int vertexCount) {
+        this.adjacency = adjacency;
+        this.stamps = new int[vertexCount];
+        this.distances = new int[vertexCount];
+        this.parentVertices = new int[vertexCount];
+        this.parentSlots = new int[vertexCount];
+        this.heap = new IndexedMinHeap(vertexCount);
+    }
+
+    /**
+     * Every search starts from scratch, so an instance can serve many point to
+     * point queries of one thread
+     * 
+     * @param adjacency graph of the query, at most {@link #capacity()} vertices
+     * @param source
+     * @param destination
+     * @return slots of the edges contained in the result path, empty if
+     *         destination is unreachable
+     */
+
+    int[] findPath(IntAdjacency adjacency, int source, int destination) {
+        return findPath(adjacency, null, source, destination);
+    }
+
+    /**
+     * @param adjacency   graph of the query, at most {@link #capacity()}
+     *                    vertices
+     * @param heuristic   lower bound of the remaining distance to the
+     *                    destination by vertex id, null for plain Dijkstra
+     * @param source
+     * @param destination
+     * @return slots of the edges contained in the result path, empty if
+     *         destination is unreachable
+     */
+
+    int[] findPath(IntAdjacency adjacency, IntUnaryOperator heuristic, int source, int destination) {
+        busy = true;
+        this.heuristic = heuristic;
+        try {
+            begin(source);
+            while (!heap.isEmpty()) {
+                int vertex = heap.pollMin();
+                if (vertex == destination) {
+                    return pathTo(vertex);
+                }
+                expandedVertex = vertex;
+                expandedDistance = distances[vertex];
+                adjacency.forEachOutgoing(vertex, this);
+            }
+            return NO_PATH;
+        } finally {
+            // the heuristic may reference the graph, it mustn't outlive the query
+            this.heuristic = null;
+            busy = false;
+        }
+    }
+
+    /**
+     * @param searches search buffers of the graph's threads
+     * @param capacity vertex count of the graph
+     * @return search buffers of the calling thread, replaced when too small, or
+     *         private ones when a heuristic queries the graph from inside a
+     *         query running on the thread's buffers
+     */
+
+    static IntDijkstraSearch acquire(ThreadLocal<IntDijkstraSearch> searches, int capacity) {
+        IntDijkstraSearch search = searches.get();
+        if (search == null || search.capacity() < capacity) {
+            search = new IntDijkstraSearch(capacity);
+            searches.set(search);
+        } else if (search.busy) {
+            search = new IntDijkstraSearch(capacity);
+        }
+        return search;
+    }
+
+    /**
+     * Settles vertices in distance order until every destination is settled,
+     * results are then read by {@link #distanceTo(int)} and {@link #pathTo(int)}
+     * 
+     * @param source
+     * @param destinations vertices to stop after, null to search the whole
+     *                     reachable part of the graph
+     */
+
+    void findPaths(int source, BitSet destinations) {
+        findPaths(adjacency, source, destinations);
+    }
+
+    /**
+     * @param adjacency    graph of the query, at most {@link #capacity()}
+     *                     vertices
+     * @param source
+     * @param destinations vertices to stop after, null to search the whole
+     *                     reachable part of the graph
+     */
+
+    void findPaths(IntAdjacency adjacency, int source, BitSet destinations) {
+        begin(source);
+        BitSet pending = destinations == null ? null : (BitSet) destinations.clone();
+
+        while (!heap.isEmpty()) {
+            int vertex = heap.pollMin();
+            if (pending != null) {
+                pending.clear(vertex);
+                if (pending.isEmpty()) {
+                    break;
+                }
+            }
+            expandedVertex = vertex;
+            expandedDistance = distances[vertex];
+            adjacency.forEachOutgoing(vertex, this);
+        }
+    }
+
+    /**
+     * Forgets the previous search and reaches the source
+     */
+
+    private void begin(int source) {
+        heap.clear();
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+        stamps[source] = epoch;
+        distances[source] = 0;
+        parentVertices[source] = -1;
+        heap.insertOrDecrease(source, priorityOf(source, 0));
+    }
+
+    private int distanceOf(int vertex) {
+        return stamps[vertex] == epoch ? distances[vertex] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return number of vertices the search buffers are sized for
+     */
+
+    int capacity() {
+        return distances.length;
+    }
+
+    @Override
+    public int distanceTo(int vertex) {
+        return heap.contains(vertex) ? Integer.MAX_VALUE : distanceOf(vertex);
+    }
+
+    @Override
+    public void accept(int target, int weight, int slot) {
+        int candidate = expandedDistance + weight;
+        if (candidate >= 0 && candidate < distanceOf(target)) {
+            stamps[target] = epoch;
+            distances[target] = candidate;
+            parentVertices[target] = expandedVertex;
+            parentSlots[target] = slot;
+            heap.insertOrDecrease(target, priorityOf(target, candidate));
+        }
+    }
+
+    private int priorityOf(int vertex, int distance) {
+        if (heuristic == null) {
+            return distance;
+        }
+        int estimate = heuristic.applyAsInt(vertex);
+        if (estimate < 0) {
+            throw new IllegalArgumentException("Heuristic estimate can't be negative!");
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (long) distance + estimate);
+    }
+
+    @Override
+    public int[] pathTo(int vertex) {
+        int length = 0;
+        for (int v = vertex; parentVertices[v] >= 0; v = parentVertices[v]) {
+            length++;
+        }
+        int[] slots = new int[length];
+        for (int v = vertex; parentVertices[v] >= 0; v = parentVertices[v]) {
+            slots[--length] = parentSlots[v];
+        }
+        return slots;
+    }
+
+}
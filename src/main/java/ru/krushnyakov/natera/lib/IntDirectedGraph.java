@@ -0,0 +1,311 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * {@link IntGraph} of directed edges kept in growable int arrays. Every edge
+ * is a record chained into the list of the outgoing records of its source, so
+ * adding an edge is amortized O(1) and searches read primitive arrays only.
+ *
+ * Parallel edges are all kept and searched. Not thread safe, like
+ * {@link DirectedGraph}.
+ *
+ * @author kkrushnyakov
+ *
+ */
+public class IntDirectedGraph implements IntGraph, IntAdjacency {
+
+    private static final int[] NO_PATH = new int[0];
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean directed;
+
+    private final boolean immutable;
+
+    /**
+     * Newest outgoing record of every vertex, -1 for none
+     */
+    private int[] heads;
+
+    private int vertexCount;
+
+    private int[] sources;
+
+    private int[] targets;
+
+    private int[] weights;
+
+    /**
+     * Next older outgoing record of the same source, -1 for none
+     */
+    private int[] nexts;
+
+    private int recordCount;
+
+    protected final AtomicLong version = new AtomicLong();
+
+    /**
+     * Search buffers reused by the point to point queries of every thread,
+     * replaced when vertices are added. They mustn't reference the graph, or
+     * the graph would live as long as the querying threads.
+     */
+    private final ThreadLocal<IntDijkstraSearch> searches = new ThreadLocal<>();
+
+    public IntDirectedGraph() {
+        this(INITIAL_CAPACITY, INITIAL_CAPACITY);
+    }
+
+    /**
+     * @param expectedVertices vertex count to size the arrays for
+     * @param expectedEdges    edge count to size the arrays for
+     */
+
+    public IntDirectedGraph(int expectedVertices, int expectedEdges) {
+        this(true, expectedVertices, expectedEdges);
+    }
+
+    protected IntDirectedGraph(boolean directed, int expectedVertices, int expectedEdges) {
+        if (expectedVertices < 0 || expectedEdges < 0) {
+            throw new IllegalArgumentException("Expected counts can't be negative!");
+        }
+        int records = directed ? expectedEdges : 2 * expectedEdges;
+        this.directed = directed;
+        this.immutable = false;
+        this.heads = new int[Math.max(1, expectedVertices)];
+        this.sources = new int[Math.max(1, records)];
+        this.targets = new int[sources.length];
+        this.weights = new int[sources.length];
+        this.nexts = new int[sources.length];
+    }
+
+    /**
+     * Immutable copy of graph
+     */
+
+    private IntDirectedGraph(IntDirectedGraph graph) {
+        this.directed = graph.directed;
+        this.immutable = true;
+        this.vertexCount = graph.vertexCount;
+        this.recordCount = graph.recordCount;
+        this.heads = Arrays.copyOf(graph.heads, Math.max(1, vertexCount));
+        this.sources = Arrays.copyOf(graph.sources, Math.max(1, recordCount));
+        this.targets = Arrays.copyOf(graph.targets, sources.length);
+        this.weights = Arrays.copyOf(graph.weights, sources.length);
+        this.nexts = Arrays.copyOf(graph.nexts, sources.length);
+        this.version.set(graph.version.get());
+    }
+
+    @Override
+    public IntGraph addVertex(int vertex) {
+        checkMutable();
+        ensureVertex(vertex);
+        version.incrementAndGet();
+        return this;
+    }
+
+    @Override
+    public IntGraph addEdge(int source, int destination, int weight) {
+        checkMutable();
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Edge weight must be positive!");
+        }
+        ensureVertex(source);
+        ensureVertex(destination);
+        append(source, destination, weight);
+        if (!directed) {
+            // the reverse record is always the odd one, see edgeOf
+            append(destination, source, weight);
+        }
+        version.incrementAndGet();
+        return this;
+    }
+
+    @Override
+    public int[] getPath(int source, int destination) {
+        if (!containsVertex(source) || !containsVertex(destination)) {
+            return NO_PATH;
+        }
+        if (source == destination) {
+            return new int[] { source };
+        }
+        int[] records = search().findPath(this, source, destination);
+        if (records.length == 0) {
+            return NO_PATH;
+        }
+        int[] path = new int[records.length + 1];
+        path[0] = source;
+        for (int i = 0; i < records.length; i++) {
+            path[i + 1] = targets[records[i]];
+        }
+        return path;
+    }
+
+    @Override
+    public int[] getPathEdges(int source, int destination) {
+        if (!containsVertex(source) || !containsVertex(destination) || source == destination) {
+            return NO_PATH;
+        }
+        int[] records = search().findPath(this, source, destination);
+        for (int i = 0; i < records.length; i++) {
+            records[i] = edgeOf(records[i]);
+        }
+        return records;
+    }
+
+    @Override
+    public int getDistance(int source, int destination) {
+        if (!containsVertex(source) || !containsVertex(destination)) {
+            return Integer.MAX_VALUE;
+        }
+        if (source == destination) {
+            return 0;
+        }
+        int[] records = search().findPath(this, source, destination);
+        if (records.length == 0) {
+            return Integer.MAX_VALUE;
+        }
+        int distance = 0;
+        for (int record : records) {
+            distance += weights[record];
+        }
+        return distance;
+    }
+
+    @Override
+    public boolean containsVertex(int vertex) {
+        return vertex >= 0 && vertex < vertexCount;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        return directed ? recordCount : recordCount / 2;
+    }
+
+    @Override
+    public int getSource(int edge) {
+        return sources[recordOf(edge)];
+    }
+
+    @Override
+    public int getDestination(int edge) {
+        return targets[recordOf(edge)];
+    }
+
+    @Override
+    public int getWeight(int edge) {
+        return weights[recordOf(edge)];
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public void forEachVertex(IntConsumer action) {
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            action.accept(vertex);
+        }
+    }
+
+    @Override
+    public IntStream vertexStream() {
+        return IntStream.range(0, vertexCount);
+    }
+
+    @Override
+    public IntGraph snapshot() {
+        return immutable ? this : new IntDirectedGraph(this);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public Graph<Integer> asGraph() {
+        return new IntGraphAdapter(this);
+    }
+
+    @Override
+    public void forEachOutgoing(int vertex, IntEdgeConsumer consumer) {
+        for (int record = heads[vertex]; record >= 0; record = nexts[record]) {
+            consumer.accept(targets[record], weights[record], record);
+        }
+    }
+
+    /**
+     * @param record slot of an {@link IntAdjacency} search
+     * @return number of the edge the record belongs to
+     */
+
+    int edgeOf(int record) {
+        return directed ? record : record >>> 1;
+    }
+
+    /**
+     * @return search buffers of the calling thread sized for the current
+     *         vertices
+     */
+
+    IntDijkstraSearch search() {
+        return IntDijkstraSearch.acquire(searches, vertexCount);
+    }
+
+    private int recordOf(int edge) {
+        if (edge < 0 || edge >= edgeCount()) {
+            throw new IllegalArgumentException("No edge " + edge + "!");
+        }
+        return directed ? edge : edge << 1;
+    }
+
+    private void checkMutable() {
+        if (immutable) {
+            throw new UnsupportedOperationException("Graph snapshot is immutable!");
+        }
+    }
+
+    private void ensureVertex(int vertex) {
+        if (vertex < 0) {
+            throw new IllegalArgumentException("Vertex id can't be negative!");
+        }
+        if (vertex < vertexCount) {
+            return;
+        }
+        if (vertex >= heads.length) {
+            heads = Arrays.copyOf(heads, Math.max(vertex + 1, heads.length * 2));
+        }
+        Arrays.fill(heads, vertexCount, vertex + 1, -1);
+        vertexCount = vertex + 1;
+    }
+
+    private void append(int from, int to, int weight) {
+        if (recordCount == sources.length) {
+            if (recordCount == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Int graph is full!");
+            }
+            int capacity = (int) Math.min(Integer.MAX_VALUE, 2L * recordCount);
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            nexts = Arrays.copyOf(nexts, capacity);
+        }
+        int record = recordCount++;
+        sources[record] = from;
+        targets[record] = to;
+        weights[record] = weight;
+        nexts[record] = heads[from];
+        heads[from] = record;
+    }
+
+}
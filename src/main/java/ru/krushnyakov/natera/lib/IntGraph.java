@@ -0,0 +1,99 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Graph of primitive int vertices, for graphs whose vertices already are
+ * integer ids. Vertices are the dense ids 0..vertexCount()-1 and edges are
+ * numbered in the order they are added, so no vertex or edge is boxed.
+ *
+ * @author kkrushnyakov
+ *
+ */
+public interface IntGraph {
+
+    /**
+     * Ids are dense: adding a vertex adds every smaller id missing yet
+     *
+     * @param vertex non negative id
+     * @return this graph
+     */
+
+    IntGraph addVertex(int vertex);
+
+    /**
+     * Adds the edge and its missing vertices
+     *
+     * @param source
+     * @param destination
+     * @param weight      positive weight
+     * @return this graph
+     */
+
+    IntGraph addEdge(int source, int destination, int weight);
+
+    default IntGraph addEdge(int source, int destination) {
+        return addEdge(source, destination, 1);
+    }
+
+    /**
+     * @param source
+     * @param destination
+     * @return ids of the vertices of the shortest path from source to
+     *         destination, both included, empty if there is no path
+     */
+
+    int[] getPath(int source, int destination);
+
+    /**
+     * @param source
+     * @param destination
+     * @return numbers of the edges contained in the shortest path, empty if
+     *         there is no path
+     */
+
+    int[] getPathEdges(int source, int destination);
+
+    /**
+     * @param source
+     * @param destination
+     * @return weight of the shortest path, Integer.MAX_VALUE if there is no path
+     */
+
+    int getDistance(int source, int destination);
+
+    boolean containsVertex(int vertex);
+
+    int vertexCount();
+
+    int edgeCount();
+
+    int getSource(int edge);
+
+    int getDestination(int edge);
+
+    int getWeight(int edge);
+
+    boolean isDirected();
+
+    void forEachVertex(IntConsumer action);
+
+    IntStream vertexStream();
+
+    /**
+     * @return immutable copy of the graph, safe to share between threads
+     */
+
+    IntGraph snapshot();
+
+    long getVersion();
+
+    /**
+     * @return view of this graph through the generic API, changes go through to
+     *         this graph
+     */
+
+    Graph<Integer> asGraph();
+
+}
@@ -0,0 +1,220 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * {@link Graph} view of an {@link IntDirectedGraph}: vertices are boxed and
+ * {@link Edge} objects created only at the API boundary, searches run over
+ * the int records. Directed int graphs take directed edges only, undirected
+ * ones undirected edges only.
+ *
+ * @author kkrushnyakov
+ *
+ */
+final class IntGraphAdapter implements Graph<Integer> {
+
+    private final IntDirectedGraph graph;
+
+    IntGraphAdapter(IntDirectedGraph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public Graph<Integer> addVertex(Integer vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        graph.addVertex(vertex);
+        return this;
+    }
+
+    @Override
+    public Graph<Integer> addEdge(Edge<Integer> edge) {
+        if (graph.isDirected() == edge instanceof UndirectedEdge) {
+            throw new IllegalArgumentException(graph.isDirected()
+                    ? "Only directed edges are possible in directed int graph!"
+                    : "Only undirected edges are possible in undirected graph!");
+        }
+        graph.addEdge(edge.getSource(), edge.getDestination(), edge.getWeight());
+        return this;
+    }
+
+    @Override
+    public List<Edge<Integer>> getPath(Integer sourceVertex, Integer destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return edgesOf(graph.getPathEdges(sourceVertex, destinationVertex));
+    }
+
+    /**
+     * Int graph answers with {@link PathStrategy#DIJKSTRA} whatever the strategy
+     */
+
+    @Override
+    public List<Edge<Integer>> getPath(Integer sourceVertex, Integer destinationVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    @Override
+    public List<Edge<Integer>> getPath(Integer sourceVertex, Integer destinationVertex,
+            ToIntFunction<Integer> heuristic) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic can't be null");
+        }
+        if (!graph.containsVertex(sourceVertex) || !graph.containsVertex(destinationVertex)
+                || sourceVertex.equals(destinationVertex)) {
+            return new ArrayList<>();
+        }
+        return edgesOfRecords(
+                graph.search().findPath(graph, heuristic::applyAsInt, sourceVertex, destinationVertex));
+    }
+
+    @Override
+    public ShortestPathTree<Integer> getPathsFrom(Integer sourceVertex) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return searchPaths(sourceVertex, null);
+    }
+
+    @Override
+    public ShortestPathTree<Integer> getPaths(Integer sourceVertex, Collection<Integer> destinationVertices) {
+        if (sourceVertex == null || destinationVertices == null) {
+            throw new IllegalArgumentException("Vertices can't be null");
+        }
+        return searchPaths(sourceVertex, destinationVertices);
+    }
+
+    @Override
+    public List<?> traverse(Function<Integer, ?> function) {
+        List<Object> result = new ArrayList<>(graph.vertexCount());
+        for (int vertex = 0; vertex < graph.vertexCount(); vertex++) {
+            result.add(function.apply(vertex));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super Integer> action) {
+        graph.forEachVertex(action::accept);
+    }
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<Integer>> action) {
+        for (int edge = 0, count = graph.edgeCount(); edge < count; edge++) {
+            action.accept(edgeAt(edge));
+        }
+    }
+
+    @Override
+    public Stream<Integer> vertexStream() {
+        return graph.vertexStream().boxed();
+    }
+
+    @Override
+    public Graph<Integer> snapshot() {
+        return graph.snapshot().asGraph();
+    }
+
+    @Override
+    public long getVersion() {
+        return graph.getVersion();
+    }
+
+    private Edge<Integer> edgeAt(int edge) {
+        int source = graph.getSource(edge);
+        int destination = graph.getDestination(edge);
+        int weight = graph.getWeight(edge);
+        return graph.isDirected() ? new DirectedEdge<>(source, destination, weight)
+                : new UndirectedEdge<>(source, destination, weight);
+    }
+
+    private List<Edge<Integer>> edgesOf(int[] edges) {
+        List<Edge<Integer>> result = new ArrayList<>(edges.length);
+        for (int edge : edges) {
+            result.add(edgeAt(edge));
+        }
+        return result;
+    }
+
+    private List<Edge<Integer>> edgesOfRecords(int[] records) {
+        List<Edge<Integer>> result = new ArrayList<>(records.length);
+        for (int record : records) {
+            result.add(edgeAt(graph.edgeOf(record)));
+        }
+        return result;
+    }
+
+    private ShortestPathTree<Integer> searchPaths(Integer sourceVertex, Collection<Integer> destinationVertices) {
+        if (!graph.containsVertex(sourceVertex)) {
+            return new IntGraphShortestPathTree(sourceVertex, null);
+        }
+        BitSet destinations = null;
+        if (destinationVertices != null) {
+            destinations = new BitSet(graph.vertexCount());
+            for (Integer vertex : destinationVertices) {
+                if (vertex != null && graph.containsVertex(vertex)) {
+                    destinations.set(vertex);
+                }
+            }
+        }
+        IntDijkstraSearch search = new IntDijkstraSearch(graph);
+        search.findPaths(sourceVertex, destinations);
+        return new IntGraphShortestPathTree(sourceVertex, search);
+    }
+
+    /**
+     * Record numbers never change, so the tree stays valid while the graph
+     * grows; vertices added after the search are unreachable in it
+     */
+    private final class IntGraphShortestPathTree implements ShortestPathTree<Integer> {
+
+        private final Integer source;
+
+        private final IntDijkstraSearch search;
+
+        IntGraphShortestPathTree(Integer source, IntDijkstraSearch search) {
+            this.source = source;
+            this.search = search;
+        }
+
+        @Override
+        public Integer getSource() {
+            return source;
+        }
+
+        @Override
+        public boolean hasPathTo(Integer vertex) {
+            return getDistanceTo(vertex) != Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int getDistanceTo(Integer vertex) {
+            if (search == null || vertex == null || vertex < 0 || vertex >= search.capacity()) {
+                return source.equals(vertex) ? 0 : Integer.MAX_VALUE;
+            }
+            return search.distanceTo(vertex);
+        }
+
+        @Override
+        public List<Edge<Integer>> getPathTo(Integer vertex) {
+            return hasPathTo(vertex) && search != null ? edgesOfRecords(search.pathTo(vertex)) : new ArrayList<>();
+        }
+
+    }
+
+}
@@ -0,0 +1,48 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints for the search engines
+ *
+ * @author kkrushnyakov
+ *
+ */
+final class IntList {
+
+    int[] values;
+
+    int size;
+
+    IntList() {
+        this(16);
+    }
+
+    IntList(int capacity) {
+        this.values = new int[Math.max(capacity, 1)];
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    void addAll(int[] source, int count) {
+        if (size + count > values.length) {
+            values = Arrays.copyOf(values, Math.max(size + count, size * 2));
+        }
+        System.arraycopy(source, 0, values, size, count);
+        size += count;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+}
@@ -0,0 +1,26 @@
+package ru.krushnyakov.natera.lib;
+
+/**
+ * Shortest paths found by a single source search over an {@link IntAdjacency}
+ *
+ * @author kkrushnyakov
+ *
+ */
+interface IntPathTree {
+
+    /**
+     * @param vertex
+     * @return distance settled by the search, Integer.MAX_VALUE if vertex wasn't
+     *         settled
+     */
+
+    int distanceTo(int vertex);
+
+    /**
+     * @param vertex settled by the search
+     * @return slots of the edges contained in the path
+     */
+
+    int[] pathTo(int vertex);
+
+}
@@ -0,0 +1,25 @@
+package ru.krushnyakov.natera.lib;
+
+/**
+ * Undirected flavour of {@link IntDirectedGraph}, every edge is kept as two
+ * opposite records
+ *
+ * @author kkrushnyakov
+ *
+ */
+public class IntUndirectedGraph extends IntDirectedGraph {
+
+    public IntUndirectedGraph() {
+        this(16, 16);
+    }
+
+    /**
+     * @param expectedVertices vertex count to size the arrays for
+     * @param expectedEdges    edge count to size the arrays for
+     */
+
+    public IntUndirectedGraph(int expectedVertices, int expectedEdges) {
+        super(false, expectedVertices, expectedEdges);
+    }
+
+}
@@ -0,0 +1,365 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * ALT index: distances from and to a few landmark vertices turn the triangle
+ * inequality into lower bounds of the remaining distance, which guide A* like
+ * a domain heuristic would. Works for any vertex type, the price is two ints
+ * per vertex and landmark.
+ *
+ * https://en.wikipedia.org/wiki/A*_search_algorithm
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public final class LandmarkIndex<V> {
+
+    private static final long SEED = 20190419L;
+
+    private final CsrGraph<V> graph;
+
+    private final long version;
+
+    private final int[] landmarks;
+
+    /**
+     * Distance from landmark i to vertex v at v * landmarks.length + i, so bounds
+     * of one vertex are read from one cache line
+     */
+    private final int[] fromLandmarks;
+
+    /**
+     * Distance from vertex v to landmark i, laid out as fromLandmarks
+     */
+    private final int[] toLandmarks;
+
+    /**
+     * Search buffers reused by the queries of every thread, they mustn't
+     * reference the index
+     */
+    private final ThreadLocal<IntDijkstraSearch> searches;
+
+    /**
+     * Builds the index of the current state of the graph, later changes of the
+     * graph aren't seen by it
+     *
+     * @param graph
+     * @param landmarkCount number of landmarks, more give tighter bounds for
+     *                      more memory
+     * @param selection     how landmarks are picked
+     */
+
+    public LandmarkIndex(Graph<V> graph, int landmarkCount, LandmarkSelection selection) {
+        if (graph == null || selection == null) {
+            throw new IllegalArgumentException("Graph and landmark selection can't be null!");
+        }
+        if (landmarkCount <= 0) {
+            throw new IllegalArgumentException("Landmark count must be positive!");
+        }
+        this.version = graph.getVersion();
+        this.graph = CsrGraph.copyOf(graph.snapshot());
+
+        int vertexCount = this.graph.vertexCount();
+        this.searches = ThreadLocal.withInitial(() -> new IntDijkstraSearch(vertexCount));
+        int count = Math.min(landmarkCount, vertexCount);
+        this.landmarks = new int[count];
+        this.fromLandmarks = new int[vertexCount * count];
+        this.toLandmarks = new int[vertexCount * count];
+
+        IntAdjacency reversed = new ReversedAdjacency(this.graph);
+        Random random = new Random(SEED);
+        int[] distances = new int[vertexCount];
+        int[] parents = new int[vertexCount];
+        IntList order = new IntList();
+        for (int i = 0; i < count; i++) {
+            int landmark = pickLandmark(i, selection, random, distances, parents, order);
+            landmarks[i] = landmark;
+            search(this.graph, new int[] { landmark }, distances, parents, order);
+            for (int v = 0; v < vertexCount; v++) {
+                fromLandmarks[v * count + i] = distances[v];
+            }
+            search(reversed, new int[] { landmark }, distances, parents, order);
+            for (int v = 0; v < vertexCount; v++) {
+                toLandmarks[v * count + i] = distances[v];
+            }
+        }
+    }
+
+    /**
+     * A* search with the landmark bounds
+     *
+     * @param sourceVertex
+     * @param destinationVertex
+     * @return List of edges contained in the result path
+     */
+
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        int source = graph.idOf(sourceVertex);
+        int destination = graph.idOf(destinationVertex);
+        if (source < 0 || destination < 0 || source == destination) {
+            return new ArrayList<>();
+        }
+        return graph.edgesOf(IntDijkstraSearch.acquire(searches, graph.vertexCount()).findPath(graph,
+                boundsTo(destination), source, destination));
+    }
+
+    /**
+     * @param destinationVertex
+     * @return admissible heuristic for
+     *         {@link Graph#getPath(Object, Object, ToIntFunction)} queries to
+     *         destinationVertex, 0 for vertices unknown to the index
+     */
+
+    public ToIntFunction<V> heuristicTo(V destinationVertex) {
+        if (destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        int destination = graph.idOf(destinationVertex);
+        if (destination < 0) {
+            return v -> 0;
+        }
+        IntUnaryOperator bounds = boundsTo(destination);
+        return v -> {
+            int id = graph.idOf(v);
+            return id < 0 ? 0 : bounds.applyAsInt(id);
+        };
+    }
+
+    /**
+     * @return {@link Graph#getVersion()} of the graph the index was built from
+     */
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<V> getLandmarks() {
+        List<V> result = new ArrayList<>(landmarks.length);
+        for (int landmark : landmarks) {
+            result.add(graph.vertexAt(landmark));
+        }
+        return result;
+    }
+
+    /**
+     * @return bytes of distances kept for every landmark
+     */
+
+    public long getBytesPerLandmark() {
+        return 2L * Integer.BYTES * graph.vertexCount();
+    }
+
+    /**
+     * @return bytes of distances kept for all the landmarks
+     */
+
+    public long getMemoryBytes() {
+        return getBytesPerLandmark() * landmarks.length;
+    }
+
+    /**
+     * Lower bound of dist(v, t) is the largest of dist(v, L) - dist(t, L) and
+     * dist(L, t) - dist(L, v) over the landmarks L
+     */
+
+    private IntUnaryOperator boundsTo(int destination) {
+        int count = landmarks.length;
+        int[] destinationFrom = Arrays.copyOfRange(fromLandmarks, destination * count, destination * count + count);
+        int[] destinationTo = Arrays.copyOfRange(toLandmarks, destination * count, destination * count + count);
+        return v -> {
+            int bound = 0;
+            int base = v * count;
+            for (int i = 0; i < count; i++) {
+                int vertexTo = toLandmarks[base + i];
+                if (vertexTo != Integer.MAX_VALUE && destinationTo[i] != Integer.MAX_VALUE) {
+                    bound = Math.max(bound, vertexTo - destinationTo[i]);
+                }
+                int vertexFrom = fromLandmarks[base + i];
+                if (destinationFrom[i] != Integer.MAX_VALUE && vertexFrom != Integer.MAX_VALUE) {
+                    bound = Math.max(bound, destinationFrom[i] - vertexFrom);
+                }
+            }
+            return bound;
+        };
+    }
+
+    private int pickLandmark(int picked, LandmarkSelection selection, Random random, int[] distances,
+            int[] parents, IntList order) {
+        int vertexCount = graph.vertexCount();
+        if (picked == 0 || selection == LandmarkSelection.RANDOM) {
+            int landmark;
+            do {
+                landmark = random.nextInt(vertexCount);
+            } while (isLandmark(landmark, picked));
+            return landmark;
+        }
+        if (selection == LandmarkSelection.FARTHEST) {
+            search(graph, Arrays.copyOf(landmarks, picked), distances, parents, order);
+            int farthest = order.get(order.size - 1);
+            for (int v = 0; v < vertexCount; v++) {
+                if (distances[v] == Integer.MAX_VALUE) {
+                    // another component
+                    return v;
+                }
+            }
+            return farthest;
+        }
+        return avoidLandmark(picked, random, distances, parents, order);
+    }
+
+    /**
+     * Weighs every vertex of a random shortest path tree by how much its
+     * distance exceeds the current lower bound, then descends from the root
+     * into the heaviest subtree without a landmark down to a leaf
+     */
+
+    private int avoidLandmark(int picked, Random random, int[] distances, int[] parents, IntList order) {
+        int vertexCount = graph.vertexCount();
+        int root;
+        do {
+            root = random.nextInt(vertexCount);
+        } while (isLandmark(root, picked));
+        search(graph, new int[] { root }, distances, parents, order);
+
+        int count = landmarks.length;
+        long[] sizes = new long[vertexCount];
+        boolean[] covered = new boolean[vertexCount];
+        for (int i = 0; i < picked; i++) {
+            covered[landmarks[i]] = true;
+        }
+        for (int i = order.size - 1; i >= 0; i--) {
+            int v = order.get(i);
+            int bound = 0;
+            for (int l = 0; l < picked; l++) {
+                int rootFrom = fromLandmarks[root * count + l];
+                int vertexFrom = fromLandmarks[v * count + l];
+                if (rootFrom != Integer.MAX_VALUE && vertexFrom != Integer.MAX_VALUE) {
+                    bound = Math.max(bound, vertexFrom - rootFrom);
+                }
+                int rootTo = toLandmarks[root * count + l];
+                int vertexTo = toLandmarks[v * count + l];
+                if (rootTo != Integer.MAX_VALUE && vertexTo != Integer.MAX_VALUE) {
+                    bound = Math.max(bound, rootTo - vertexTo);
+                }
+            }
+            sizes[v] += covered[v] ? 0 : distances[v] - bound;
+            int parent = parents[v];
+            if (parent >= 0) {
+                covered[parent] |= covered[v];
+                sizes[parent] += covered[v] ? 0 : sizes[v];
+            }
+        }
+
+        int[] heaviestChildren = new int[vertexCount];
+        Arrays.fill(heaviestChildren, -1);
+        for (int i = 0; i < order.size; i++) {
+            int v = order.get(i);
+            int parent = parents[v];
+            if (parent >= 0 && !covered[v]
+                    && (heaviestChildren[parent] < 0 || sizes[v] > sizes[heaviestChildren[parent]])) {
+                heaviestChildren[parent] = v;
+            }
+        }
+        int current = root;
+        while (heaviestChildren[current] >= 0) {
+            current = heaviestChildren[current];
+        }
+        return current;
+    }
+
+    private boolean isLandmark(int vertex, int picked) {
+        for (int i = 0; i < picked; i++) {
+            if (landmarks[i] == vertex) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Multi source Dijkstra filling distances, shortest path tree parents and
+     * the settle order of the reachable vertices
+     */
+
+    private static void search(IntAdjacency adjacency, int[] sources, int[] distances, int[] parents,
+            IntList order) {
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        order.clear();
+        IndexedMinHeap heap = new IndexedMinHeap(adjacency.vertexCount());
+        for (int source : sources) {
+            distances[source] = 0;
+            parents[source] = -1;
+            heap.insertOrDecrease(source, 0);
+        }
+        while (!heap.isEmpty()) {
+            int vertex = heap.pollMin();
+            order.add(vertex);
+            int distance = distances[vertex];
+            adjacency.forEachOutgoing(vertex, (target, weight, slot) -> {
+                int candidate = distance + weight;
+                if (candidate >= 0 && candidate < distances[target]) {
+                    distances[target] = candidate;
+                    parents[target] = vertex;
+                    heap.insertOrDecrease(target, candidate);
+                }
+            });
+        }
+    }
+
+    /**
+     * Transposed adjacency of a snapshot for the distances to the landmarks
+     */
+    private static final class ReversedAdjacency implements IntAdjacency {
+
+        private final int[] offsets;
+
+        private final int[] sources;
+
+        private final int[] weights;
+
+        ReversedAdjacency(CsrGraph<?> graph) {
+            int vertexCount = graph.vertexCount();
+            this.offsets = new int[vertexCount + 1];
+            this.sources = new int[graph.edgeCount()];
+            this.weights = new int[graph.edgeCount()];
+            for (int v = 0; v < vertexCount; v++) {
+                graph.forEachOutgoing(v, (target, weight, slot) -> offsets[target + 1]++);
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] fill = Arrays.copyOf(offsets, vertexCount);
+            for (int v = 0; v < vertexCount; v++) {
+                int source = v;
+                graph.forEachOutgoing(v, (target, weight, slot) -> {
+                    sources[fill[target]] = source;
+                    weights[fill[target]++] = weight;
+                });
+            }
+        }
+
+        @Override
+        public int vertexCount() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        public void forEachOutgoing(int vertex, IntEdgeConsumer consumer) {
+            for (int slot = offsets[vertex], end = offsets[vertex + 1]; slot < end; slot++) {
+                consumer.accept(sources[slot], weights[slot], slot);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,29 @@
+package ru.krushnyakov.natera.lib;
+
+/**
+ * How {@link LandmarkIndex} picks its landmarks
+ *
+ * @author kkrushnyakov
+ *
+ */
+public enum LandmarkSelection {
+
+    /**
+     * Uniformly random vertices, cheapest to pick
+     */
+    RANDOM,
+
+    /**
+     * Every next landmark is the vertex farthest from the already picked ones,
+     * so landmarks end up at the borders of the graph
+     */
+    FARTHEST,
+
+    /**
+     * Goldberg and Werneck's avoid heuristic: grows a shortest path tree from a
+     * random root and picks a leaf of the subtree the current landmarks bound
+     * worst
+     */
+    AVOID
+
+}
@@ -0,0 +1,378 @@
+package ru.krushnyakov.natera.lib;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Immutable graph answering queries straight from a memory mapped
+ * {@link GraphFile}. Searches run over the mapped CSR arrays, vertices are
+ * looked up by their serialized bytes in the mapped hash table, and only the
+ * vertices and edges of returned paths are deserialized.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public final class MappedGraph<V> implements Graph<V>, IntAdjacency {
+
+    private final ByteBuffer buffer;
+
+    private final VertexSerializer<V> serializer;
+
+    private final int vertexCount;
+
+    private final IntBuffer offsets;
+
+    private final IntBuffer targets;
+
+    private final IntBuffer weights;
+
+    private final IntBuffer positions;
+
+    private final IntBuffer table;
+
+    private final ByteBuffer flags;
+
+    private final ByteBuffer dictionary;
+
+    /**
+     * Search buffers reused by the point to point queries of every thread. They
+     * mustn't reference the graph, or the file would stay mapped as long as the
+     * querying threads live.
+     */
+    private final ThreadLocal<IntDijkstraSearch> searches;
+
+    MappedGraph(ByteBuffer buffer, VertexSerializer<V> serializer) {
+        this.buffer = buffer;
+        this.serializer = serializer;
+        int vertexCount = buffer.getInt(GraphFile.VERTEX_COUNT);
+        this.vertexCount = vertexCount;
+        this.searches = ThreadLocal.withInitial(() -> new IntDijkstraSearch(vertexCount));
+        int edgeCount = buffer.getInt(GraphFile.EDGE_COUNT);
+        int tableCapacity = buffer.getInt(GraphFile.TABLE_CAPACITY);
+
+        int position = GraphFile.HEADER_SIZE;
+        this.offsets = slice(position, (vertexCount + 1) * Integer.BYTES).asIntBuffer();
+        position += (vertexCount + 1) * Integer.BYTES;
+        this.targets = slice(position, edgeCount * Integer.BYTES).asIntBuffer();
+        position += edgeCount * Integer.BYTES;
+        this.weights = slice(position, edgeCount * Integer.BYTES).asIntBuffer();
+        position += edgeCount * Integer.BYTES;
+        this.positions = slice(position, (vertexCount + 1) * Integer.BYTES).asIntBuffer();
+        position += (vertexCount + 1) * Integer.BYTES;
+        this.table = slice(position, tableCapacity * Integer.BYTES).asIntBuffer();
+        position += tableCapacity * Integer.BYTES;
+        this.flags = slice(position, edgeCount);
+        position += edgeCount;
+        this.dictionary = slice(position, buffer.capacity() - position);
+    }
+
+    @Override
+    public Graph<V> addVertex(V vertex) {
+        throw new UnsupportedOperationException("Mapped graph is immutable!");
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        throw new UnsupportedOperationException("Mapped graph is immutable!");
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0 || source == destination) {
+            return new ArrayList<>();
+        }
+        return edgesOf(IntDijkstraSearch.acquire(searches, vertexCount()).findPath(this, source, destination));
+    }
+
+    /**
+     * Mapped graph answers with {@link PathStrategy#DIJKSTRA} whatever the
+     * strategy
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic can't be null");
+        }
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0 || source == destination) {
+            return new ArrayList<>();
+        }
+        return edgesOf(IntDijkstraSearch.acquire(searches, vertexCount()).findPath(this,
+                v -> heuristic.applyAsInt(vertexAt(v)), source, destination));
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return searchPaths(sourceVertex, null);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        if (sourceVertex == null || destinationVertices == null) {
+            throw new IllegalArgumentException("Vertices can't be null");
+        }
+        return searchPaths(sourceVertex, destinationVertices);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function) {
+        List<Object> result = new ArrayList<>(vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            result.add(function.apply(vertexAt(v)));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super V> action) {
+        for (int v = 0; v < vertexCount; v++) {
+            action.accept(vertexAt(v));
+        }
+    }
+
+    /**
+     * Passes the lightest edges only, as they are the ones written
+     */
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<V>> action) {
+        // an undirected edge is written for both directions it is the lightest in
+        Set<Edge<V>> undirected = new HashSet<>();
+        for (int v = 0; v < vertexCount; v++) {
+            for (int slot = offsets.get(v), end = offsets.get(v + 1); slot < end; slot++) {
+                Edge<V> edge = edgeAt(v, slot);
+                if (!(edge instanceof UndirectedEdge) || undirected.add(edge)) {
+                    action.accept(edge);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Stream<V> vertexStream() {
+        return IntStream.range(0, vertexCount).mapToObj(this::vertexAt);
+    }
+
+    @Override
+    public Graph<V> snapshot() {
+        return this;
+    }
+
+    @Override
+    public long getVersion() {
+        return 0;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    public int edgeCount() {
+        return targets.capacity();
+    }
+
+    /**
+     * @return size of the mapped file
+     */
+
+    public long getFileSize() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public void forEachOutgoing(int vertex, IntEdgeConsumer consumer) {
+        for (int slot = offsets.get(vertex), end = offsets.get(vertex + 1); slot < end; slot++) {
+            consumer.accept(targets.get(slot), weights.get(slot), slot);
+        }
+    }
+
+    /**
+     * @param vertex
+     * @return dense id of the vertex, -1 if the file doesn't contain it
+     */
+
+    int idOf(V vertex) {
+        byte[] bytes = serializer.serialize(vertex);
+        int mask = table.capacity() - 1;
+        for (int bucket = GraphFile.hashOf(bytes) & mask;; bucket = (bucket + 1) & mask) {
+            int id = table.get(bucket) - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hasBytes(id, bytes)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @param id
+     * @return vertex with the dense id
+     */
+
+    V vertexAt(int id) {
+        ByteBuffer bytes = dictionary.duplicate();
+        GraphFile.limit(bytes, positions.get(id + 1));
+        GraphFile.position(bytes, positions.get(id));
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * @param slot
+     * @return edge stored in the slot
+     */
+
+    Edge<V> edgeAt(int slot) {
+        return edgeAt(sourceOf(slot), slot);
+    }
+
+    private Edge<V> edgeAt(int source, int slot) {
+        V from = vertexAt(source);
+        V to = vertexAt(targets.get(slot));
+        int weight = weights.get(slot);
+        byte flag = flags.get(slot);
+        if ((flag & GraphFile.UNDIRECTED) == 0) {
+            return new DirectedEdge<>(from, to, weight);
+        }
+        return (flag & GraphFile.REVERSED) == 0 ? new UndirectedEdge<>(from, to, weight)
+                : new UndirectedEdge<>(to, from, weight);
+    }
+
+    private List<Edge<V>> edgesOf(int[] slots) {
+        List<Edge<V>> result = new ArrayList<>(slots.length);
+        for (int slot : slots) {
+            result.add(edgeAt(slot));
+        }
+        return result;
+    }
+
+    /**
+     * Binary search of the vertex whose edges hold the slot
+     */
+
+    private int sourceOf(int slot) {
+        int low = 0;
+        int high = vertexCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets.get(middle) <= slot) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean hasBytes(int id, byte[] bytes) {
+        int start = positions.get(id);
+        if (positions.get(id + 1) - start != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (dictionary.get(start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ShortestPathTree<V> searchPaths(V sourceVertex, Collection<V> destinationVertices) {
+        int source = idOf(sourceVertex);
+        if (source < 0) {
+            return new MappedShortestPathTree(sourceVertex, null);
+        }
+        BitSet destinations = null;
+        if (destinationVertices != null) {
+            destinations = new BitSet(vertexCount);
+            for (V vertex : destinationVertices) {
+                int destination = idOf(vertex);
+                if (destination >= 0) {
+                    destinations.set(destination);
+                }
+            }
+        }
+        IntDijkstraSearch search = new IntDijkstraSearch(this);
+        search.findPaths(source, destinations);
+        return new MappedShortestPathTree(sourceVertex, search);
+    }
+
+    private ByteBuffer slice(int position, int length) {
+        ByteBuffer slice = buffer.duplicate();
+        GraphFile.limit(slice, position + length);
+        GraphFile.position(slice, position);
+        return slice.slice();
+    }
+
+    private final class MappedShortestPathTree implements ShortestPathTree<V> {
+
+        private final V source;
+
+        private final IntPathTree search;
+
+        MappedShortestPathTree(V source, IntPathTree search) {
+            this.source = source;
+            this.search = search;
+        }
+
+        @Override
+        public V getSource() {
+            return source;
+        }
+
+        @Override
+        public boolean hasPathTo(V vertex) {
+            return getDistanceTo(vertex) != Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int getDistanceTo(V vertex) {
+            int id = idOf(vertex);
+            if (search == null || id < 0) {
+                return source.equals(vertex) ? 0 : Integer.MAX_VALUE;
+            }
+            return search.distanceTo(id);
+        }
+
+        @Override
+        public List<Edge<V>> getPathTo(V vertex) {
+            return hasPathTo(vertex) && search != null ? edgesOf(search.pathTo(idOf(vertex))) : new ArrayList<>();
+        }
+
+    }
+
+}
@@ -0,0 +1,428 @@
+package ru.krushnyakov.natera.lib;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Directed graph keeping its edges outside of the heap. Every edge is an
+ * append-only record in direct {@link ByteBuffer} segments, chained into a
+ * list of the outgoing edges of its source vertex, and the list heads live in
+ * a direct buffer too. The heap holds only the vertex dictionary, so heap usage
+ * and GC pauses don't grow with the edge count, and searches run over the
+ * primitive records. {@link Edge} objects are created only for returned paths.
+ *
+ * Parallel edges are all kept and searched. Not thread safe, like
+ * {@link DirectedGraph}.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public class OffHeapDirectedGraph<V> implements Graph<V>, IntAdjacency {
+
+    private static final int FROM = 0;
+
+    private static final int TO = 4;
+
+    private static final int WEIGHT = 8;
+
+    private static final int NEXT = 12;
+
+    private static final int FLAGS = 16;
+
+    private static final int RECORD_SIZE = 20;
+
+    private static final int SEGMENT_SHIFT = 20;
+
+    /**
+     * Records of a full segment, 20 MB
+     */
+    private static final int SEGMENT_RECORDS = 1 << SEGMENT_SHIFT;
+
+    private static final int INITIAL_RECORDS = 64;
+
+    private static final int UNDIRECTED = 1;
+
+    private static final int REVERSED = 2;
+
+    private final Map<V, Integer> vertexIds;
+
+    private final List<V> vertexById;
+
+    /**
+     * Newest outgoing record of every vertex, -1 for none
+     */
+    private ByteBuffer heads;
+
+    private ByteBuffer[] segments;
+
+    private int recordCount;
+
+    private final boolean immutable;
+
+    protected final AtomicLong version = new AtomicLong();
+
+    /**
+     * Search buffers reused by the point to point queries of every thread,
+     * replaced when vertices are added. They mustn't reference the graph, or
+     * its direct buffers would live as long as the querying threads.
+     */
+    private final ThreadLocal<IntDijkstraSearch> searches = new ThreadLocal<>();
+
+    public OffHeapDirectedGraph() {
+        this.vertexIds = new HashMap<>();
+        this.vertexById = new ArrayList<>();
+        this.heads = ByteBuffer.allocateDirect(INITIAL_RECORDS * Integer.BYTES);
+        this.segments = new ByteBuffer[] { ByteBuffer.allocateDirect(INITIAL_RECORDS * RECORD_SIZE) };
+        this.immutable = false;
+    }
+
+    public OffHeapDirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        this();
+        if (vertices == null || edges == null) {
+            throw new IllegalArgumentException("Edges and Verticles can't be null!");
+        }
+        vertices.forEach(this::addVertex);
+        edges.forEach(this::addEdge);
+    }
+
+    /**
+     * Immutable copy of graph sharing its records: records are never changed
+     * once written, and records appended later are newer than the copied heads
+     */
+
+    private OffHeapDirectedGraph(OffHeapDirectedGraph<V> graph) {
+        int vertexCount = graph.vertexCount();
+        this.vertexIds = new HashMap<>(graph.vertexIds);
+        this.vertexById = new ArrayList<>(graph.vertexById);
+        this.heads = ByteBuffer.allocateDirect(Math.max(1, vertexCount) * Integer.BYTES);
+        for (int v = 0; v < vertexCount; v++) {
+            heads.putInt(v * Integer.BYTES, graph.heads.getInt(v * Integer.BYTES));
+        }
+        this.segments = graph.segments.clone();
+        this.recordCount = graph.recordCount;
+        this.immutable = true;
+    }
+
+    @Override
+    public Graph<V> addVertex(V vertex) {
+        if (vertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        idOrAdd(vertex);
+        version.incrementAndGet();
+        return this;
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        if (immutable) {
+            throw new UnsupportedOperationException("Graph snapshot is immutable!");
+        }
+        int source = idOrAdd(edge.getSource());
+        int destination = idOrAdd(edge.getDestination());
+        boolean undirected = edge.getClass() == UndirectedEdge.class;
+        append(source, destination, edge.getWeight(), undirected ? UNDIRECTED : 0);
+        if (undirected && source != destination) {
+            append(destination, source, edge.getWeight(), UNDIRECTED | REVERSED);
+        }
+        version.incrementAndGet();
+        return this;
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0 || source == destination) {
+            return new ArrayList<>();
+        }
+        return edgesOf(IntDijkstraSearch.acquire(searches, vertexCount()).findPath(this, source, destination));
+    }
+
+    /**
+     * Off-heap graph answers with {@link PathStrategy#DIJKSTRA} whatever the
+     * strategy
+     */
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("Path strategy can't be null");
+        }
+        return getPath(sourceVertex, destinationVertex);
+    }
+
+    @Override
+    public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        if (heuristic == null) {
+            throw new IllegalArgumentException("Heuristic can't be null");
+        }
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0 || source == destination) {
+            return new ArrayList<>();
+        }
+        return edgesOf(IntDijkstraSearch.acquire(searches, vertexCount()).findPath(this,
+                v -> heuristic.applyAsInt(vertexById.get(v)), source, destination));
+    }
+
+    @Override
+    public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+        if (sourceVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return searchPaths(sourceVertex, null);
+    }
+
+    @Override
+    public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+        if (sourceVertex == null || destinationVertices == null) {
+            throw new IllegalArgumentException("Vertices can't be null");
+        }
+        return searchPaths(sourceVertex, destinationVertices);
+    }
+
+    @Override
+    public List<?> traverse(Function<V, ?> function) {
+        List<Object> result = new ArrayList<>(vertexById.size());
+        for (V vertex : vertexById) {
+            result.add(function.apply(vertex));
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachVertex(Consumer<? super V> action) {
+        vertexById.forEach(action);
+    }
+
+    @Override
+    public void forEachEdge(Consumer<? super Edge<V>> action) {
+        for (int record = 0; record < recordCount; record++) {
+            int offset = (record & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+            // undirected edges are kept as a record pair, the reversed one is skipped
+            if ((segments[record >>> SEGMENT_SHIFT].getInt(offset + FLAGS) & REVERSED) == 0) {
+                action.accept(edgeAt(record));
+            }
+        }
+    }
+
+    @Override
+    public Stream<V> vertexStream() {
+        return vertexById.stream();
+    }
+
+    /**
+     * Copies the vertex dictionary and the list heads only, edge records are
+     * shared with the graph
+     */
+
+    @Override
+    public Graph<V> snapshot() {
+        return immutable ? this : new OffHeapDirectedGraph<>(this);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexById.size();
+    }
+
+    /**
+     * @return number of edge records, undirected edges take two
+     */
+
+    public int recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return bytes of the direct buffers holding the edges and list heads
+     */
+
+    public long getOffHeapBytes() {
+        long bytes = heads.capacity();
+        for (ByteBuffer segment : segments) {
+            bytes += segment.capacity();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void forEachOutgoing(int vertex, IntEdgeConsumer consumer) {
+        for (int record = heads.getInt(vertex * Integer.BYTES); record >= 0;) {
+            ByteBuffer segment = segments[record >>> SEGMENT_SHIFT];
+            int offset = (record & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+            consumer.accept(segment.getInt(offset + TO), segment.getInt(offset + WEIGHT), record);
+            record = segment.getInt(offset + NEXT);
+        }
+    }
+
+    /**
+     * @param vertex
+     * @return dense id of the vertex, -1 if the graph doesn't contain it
+     */
+
+    int idOf(V vertex) {
+        Integer id = vertexIds.get(vertex);
+        return id == null ? -1 : id;
+    }
+
+    private int idOrAdd(V vertex) {
+        if (immutable) {
+            throw new UnsupportedOperationException("Graph snapshot is immutable!");
+        }
+        Integer id = vertexIds.get(vertex);
+        if (id != null) {
+            return id;
+        }
+        int newId = vertexById.size();
+        if ((newId + 1) * Integer.BYTES > heads.capacity()) {
+            heads = grow(heads, heads.capacity() * 2);
+        }
+        heads.putInt(newId * Integer.BYTES, -1);
+        vertexIds.put(vertex, newId);
+        vertexById.add(vertex);
+        return newId;
+    }
+
+    private void append(int from, int to, int weight, int flags) {
+        if (recordCount == Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap graph is full!");
+        }
+        int record = recordCount;
+        int index = record >>> SEGMENT_SHIFT;
+        int offset = (record & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+        if (index == segments.length) {
+            segments = Arrays.copyOf(segments, index + 1);
+            segments[index] = ByteBuffer.allocateDirect(SEGMENT_RECORDS * RECORD_SIZE);
+        } else if (offset == segments[index].capacity()) {
+            // only the first segment starts small
+            segments[index] = grow(segments[index], Math.min(SEGMENT_RECORDS * RECORD_SIZE, offset * 2));
+        }
+        ByteBuffer segment = segments[index];
+        segment.putInt(offset + FROM, from);
+        segment.putInt(offset + TO, to);
+        segment.putInt(offset + WEIGHT, weight);
+        segment.putInt(offset + NEXT, heads.getInt(from * Integer.BYTES));
+        segment.putInt(offset + FLAGS, flags);
+        heads.putInt(from * Integer.BYTES, record);
+        recordCount++;
+    }
+
+    private Edge<V> edgeAt(int record) {
+        ByteBuffer segment = segments[record >>> SEGMENT_SHIFT];
+        int offset = (record & (SEGMENT_RECORDS - 1)) * RECORD_SIZE;
+        V from = vertexById.get(segment.getInt(offset + FROM));
+        V to = vertexById.get(segment.getInt(offset + TO));
+        int weight = segment.getInt(offset + WEIGHT);
+        int flags = segment.getInt(offset + FLAGS);
+        if ((flags & UNDIRECTED) == 0) {
+            return new DirectedEdge<>(from, to, weight);
+        }
+        return (flags & REVERSED) == 0 ? new UndirectedEdge<>(from, to, weight)
+                : new UndirectedEdge<>(to, from, weight);
+    }
+
+    private List<Edge<V>> edgesOf(int[] records) {
+        List<Edge<V>> result = new ArrayList<>(records.length);
+        for (int record : records) {
+            result.add(edgeAt(record));
+        }
+        return result;
+    }
+
+    private ShortestPathTree<V> searchPaths(V sourceVertex, Collection<V> destinationVertices) {
+        int source = idOf(sourceVertex);
+        if (source < 0) {
+            return new OffHeapShortestPathTree(sourceVertex, null);
+        }
+        BitSet destinations = null;
+        if (destinationVertices != null) {
+            destinations = new BitSet(vertexCount());
+            for (V vertex : destinationVertices) {
+                int destination = idOf(vertex);
+                if (destination >= 0) {
+                    destinations.set(destination);
+                }
+            }
+        }
+        IntDijkstraSearch search = new IntDijkstraSearch(this);
+        search.findPaths(source, destinations);
+        return new OffHeapShortestPathTree(sourceVertex, search);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        ByteBuffer content = buffer.duplicate();
+        GraphFile.position(content, 0);
+        GraphFile.limit(content, buffer.capacity());
+        grown.put(content);
+        return grown;
+    }
+
+    /**
+     * Records never move, so the tree stays valid while the graph grows;
+     * vertices added after the search are unreachable in it
+     */
+    private final class OffHeapShortestPathTree implements ShortestPathTree<V> {
+
+        private final V source;
+
+        private final IntDijkstraSearch search;
+
+        OffHeapShortestPathTree(V source, IntDijkstraSearch search) {
+            this.source = source;
+            this.search = search;
+        }
+
+        @Override
+        public V getSource() {
+            return source;
+        }
+
+        @Override
+        public boolean hasPathTo(V vertex) {
+            return getDistanceTo(vertex) != Integer.MAX_VALUE;
+        }
+
+        @Override
+        public int getDistanceTo(V vertex) {
+            int id = idOf(vertex);
+            if (search == null || id < 0 || id >= search.capacity()) {
+                return source.equals(vertex) ? 0 : Integer.MAX_VALUE;
+            }
+            return search.distanceTo(id);
+        }
+
+        @Override
+        public List<Edge<V>> getPathTo(V vertex) {
+            return hasPathTo(vertex) && search != null ? edgesOf(search.pathTo(idOf(vertex))) : new ArrayList<>();
+        }
+
+    }
+
+}
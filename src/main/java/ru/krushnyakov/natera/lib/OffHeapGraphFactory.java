@@ -0,0 +1,37 @@
+/**
+ * 
+ */
+package ru.krushnyakov.natera.lib;
+
+import java.util.Set;
+
+/**
+ * Produces graphs keeping their edges in direct buffers, for graphs which
+ * don't fit the heap as objects
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public class OffHeapGraphFactory implements GraphFactory {
+
+    @Override
+    public <V> Graph<V> createUndirectedGraph() {
+        return new OffHeapUndirectedGraph<V>();
+    }
+
+    @Override
+    public <V> Graph<V> createUndirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        return new OffHeapUndirectedGraph<V>(vertices, edges);
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph() {
+        return new OffHeapDirectedGraph<V>();
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        return new OffHeapDirectedGraph<V>(vertices, edges);
+    }
+
+}
@@ -0,0 +1,35 @@
+/**
+ * 
+ */
+package ru.krushnyakov.natera.lib;
+
+import java.util.Set;
+
+/**
+ * Undirected flavour of {@link OffHeapDirectedGraph}
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public class OffHeapUndirectedGraph<V> extends OffHeapDirectedGraph<V> {
+
+    public OffHeapUndirectedGraph() {
+        super();
+    }
+
+    public OffHeapUndirectedGraph(Set<V> vertices, Set<Edge<V>> edges) {
+        super(vertices, edges);
+        if (edges.stream().anyMatch(e -> e.getClass() != UndirectedEdge.class))
+            throw new IllegalArgumentException("Can initialize undirected graph only with undirected edges!");
+    }
+
+    @Override
+    public Graph<V> addEdge(Edge<V> edge) {
+        if (!(edge instanceof UndirectedEdge)) {
+            throw new IllegalArgumentException("Only undirected edges are possible in undirected graph!");
+        }
+        super.addEdge(edge);
+        return this;
+    }
+
+}
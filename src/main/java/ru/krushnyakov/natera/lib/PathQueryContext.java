@@ -0,0 +1,138 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Search buffers of point to point queries, reusable from query to query so
+ * that a steady stream of queries allocates nothing but the result paths.
+ *
+ * Every vertex a query reaches is interned once into a dense id indexing the
+ * distance, parent and heap arrays, and the arrays are cleared in O(1) by
+ * moving to the next epoch: an id stamped with an older epoch is unreached.
+ * Interned vertices are remembered for the lifetime of the context, so a
+ * context is best kept per graph, e.g. in a thread local.
+ *
+ * Not thread safe: one context serves one query at a time.
+ *
+ * @author kkrushnyakov
+ *
+ */
+public final class PathQueryContext {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<Object, Integer> ids = new HashMap<>();
+
+    private Object[] vertices = new Object[INITIAL_CAPACITY];
+
+    private int[] stamps = new int[INITIAL_CAPACITY];
+
+    private int epoch;
+
+    int[] distances = new int[INITIAL_CAPACITY];
+
+    int[] parents = new int[INITIAL_CAPACITY];
+
+    Object[] parentEdges = new Object[INITIAL_CAPACITY];
+
+    /**
+     * Heuristic estimates of A* searches
+     */
+    int[] estimates = new int[INITIAL_CAPACITY];
+
+    final IndexedMinHeap heap = new IndexedMinHeap(INITIAL_CAPACITY);
+
+    int[] fifo = new int[INITIAL_CAPACITY];
+
+    int[][] buckets = new int[0][];
+
+    int[] bucketSizes = new int[0];
+
+    /**
+     * Starts a query, forgetting the previous one
+     */
+
+    void begin() {
+        heap.clear();
+        if (++epoch == 0) {
+            Arrays.fill(stamps, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * @param vertex
+     * @return id of vertex, unreached in a new query
+     */
+
+    int slotOf(Object vertex) {
+        Integer id = ids.get(vertex);
+        int slot;
+        if (id != null) {
+            slot = id;
+        } else {
+            slot = ids.size();
+            if (slot == stamps.length) {
+                grow(slot * 2);
+            }
+            ids.put(vertex, slot);
+            vertices[slot] = vertex;
+        }
+        if (stamps[slot] != epoch) {
+            stamps[slot] = epoch;
+            distances[slot] = Integer.MAX_VALUE;
+            parents[slot] = -1;
+        }
+        return slot;
+    }
+
+    /**
+     * @param vertex
+     * @return id of vertex if the current query reached it, -1 otherwise
+     */
+
+    int reachedSlotOf(Object vertex) {
+        Integer id = ids.get(vertex);
+        return id != null && stamps[id] == epoch ? id : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    <V> V vertexAt(int slot) {
+        return (V) vertices[slot];
+    }
+
+    /**
+     * @param slot reached vertex
+     * @return edges leading to the vertex from the source of the query
+     */
+
+    <V> List<Edge<V>> pathTo(int slot) {
+        int length = 0;
+        for (int s = slot; parents[s] >= 0; s = parents[s]) {
+            length++;
+        }
+        List<Edge<V>> result = new ArrayList<>(length);
+        for (int s = slot; parents[s] >= 0; s = parents[s]) {
+            @SuppressWarnings("unchecked")
+            Edge<V> edge = (Edge<V>) parentEdges[s];
+            result.add(edge);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    private void grow(int capacity) {
+        vertices = Arrays.copyOf(vertices, capacity);
+        stamps = Arrays.copyOf(stamps, capacity);
+        distances = Arrays.copyOf(distances, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        parentEdges = Arrays.copyOf(parentEdges, capacity);
+        estimates = Arrays.copyOf(estimates, capacity);
+    }
+
+}
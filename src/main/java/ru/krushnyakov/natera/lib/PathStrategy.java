@@ -0,0 +1,45 @@
+package ru.krushnyakov.natera.lib;
+
+/**
+ * Shortest path search algorithms selectable for
+ * {@link Graph#getPath(Object, Object, PathStrategy)}. Graph implementations
+ * which don't specialize a strategy answer with {@link #DIJKSTRA}, paths of
+ * every strategy have the same minimal weight.
+ * 
+ * @author kkrushnyakov
+ *
+ */
+public enum PathStrategy {
+
+    /**
+     * https://en.wikipedia.org/wiki/Dijkstra's_algorithm growing from the
+     * source vertex only
+     */
+    DIJKSTRA,
+
+    /**
+     * Dijkstra growing from both ends until the frontiers meet, settles far
+     * fewer vertices on large sparse graphs
+     * 
+     * https://en.wikipedia.org/wiki/Bidirectional_search
+     */
+    BIDIRECTIONAL_DIJKSTRA,
+
+    /**
+     * Dial's https://en.wikipedia.org/wiki/Bucket_queue with a bucket per
+     * distinct tentative distance, plain breadth first search when all the
+     * weights are 1. Runs in O(E + V * C) for the maximal edge weight C, so
+     * pays off on graphs with small weights.
+     */
+    BUCKET_QUEUE,
+
+    /**
+     * Parallel delta stepping on the common {@link java.util.concurrent.ForkJoinPool},
+     * pays off for single source and long point to point queries on big graphs.
+     * Specialized by graph snapshots only.
+     * 
+     * https://en.wikipedia.org/wiki/Parallel_single-source_shortest_path_algorithm#Delta_stepping_algorithm
+     */
+    DELTA_STEPPING
+
+}
@@ -0,0 +1,62 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree of graphs without a single source search, made of one point to point
+ * getPath query per destination
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class PointToPointPathTree<V> implements ShortestPathTree<V> {
+
+    private final V source;
+
+    private final Map<V, List<Edge<V>>> paths = new HashMap<>();
+
+    private final Map<V, Integer> distances = new HashMap<>();
+
+    /**
+     * @param graph
+     * @param source
+     * @param destinations vertices to search the paths to
+     */
+
+    PointToPointPathTree(Graph<V> graph, V source, Iterable<V> destinations) {
+        this.source = source;
+        for (V destination : destinations) {
+            List<Edge<V>> path = graph.getPath(source, destination);
+            if (!path.isEmpty() || destination.equals(source)) {
+                paths.put(destination, path);
+                distances.put(destination, path.stream().mapToInt(Edge::getWeight).sum());
+            }
+        }
+    }
+
+    @Override
+    public V getSource() {
+        return source;
+    }
+
+    @Override
+    public boolean hasPathTo(V vertex) {
+        return paths.containsKey(vertex);
+    }
+
+    @Override
+    public int getDistanceTo(V vertex) {
+        return distances.getOrDefault(vertex, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Edge<V>> getPathTo(V vertex) {
+        List<Edge<V>> path = paths.get(vertex);
+        return path == null ? new ArrayList<>() : new ArrayList<>(path);
+    }
+
+}
@@ -0,0 +1,282 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reachability labels of the strongly connected component condensation, after
+ * GRAIL (Yildirim, Chaoji, Zaki, 2010).
+ *
+ * Every component gets the post-order rank of two depth first traversals in
+ * opposite child orders and the lowest rank reachable from it, so a component
+ * can only reach components whose [low, post] intervals lie within its own.
+ * The intervals of the first traversal's tree are exact, so descendants in the
+ * tree are found at once too. Component numbers are a topological order, one
+ * more free rejection. Remaining queries search the condensation, pruned by
+ * the same intervals.
+ *
+ * https://en.wikipedia.org/wiki/Strongly_connected_component
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class ReachabilityIndex<V> {
+
+    private final StronglyConnectedComponents<V> components;
+
+    /**
+     * Condensation edges of component c are targets[offsets[c]] up to
+     * targets[offsets[c + 1]]
+     */
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private final int[] post;
+
+    private final int[] low;
+
+    /**
+     * Lowest rank of the traversal tree below the component
+     */
+    private final int[] treeLow;
+
+    private final int[] reversedPost;
+
+    private final int[] reversedLow;
+
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * @param vertices
+     * @param adjacency lightest edges of the graph, only the neighbour keys are
+     *                  read
+     * @param version   {@link Graph#getVersion()} the adjacency was read at
+     */
+
+    ReachabilityIndex(Set<V> vertices, Map<V, ? extends Map<V, ?>> adjacency, long version) {
+        this.components = new StronglyConnectedComponents<>(vertices, adjacency, version);
+        int count = components.componentCount();
+
+        IntList from = new IntList();
+        IntList to = new IntList();
+        for (Map.Entry<V, ? extends Map<V, ?>> entry : adjacency.entrySet()) {
+            int source = components.componentOf(entry.getKey());
+            if (source < 0) {
+                continue;
+            }
+            for (V neighbour : entry.getValue().keySet()) {
+                int target = components.componentOf(neighbour);
+                // edges added while the components were numbered may break the order, they are left out
+                if (target >= 0 && target < source) {
+                    from.add(source);
+                    to.add(target);
+                }
+            }
+        }
+        this.offsets = new int[count + 1];
+        this.targets = condense(count, from, to, offsets);
+
+        this.post = new int[count];
+        this.low = new int[count];
+        this.treeLow = new int[count];
+        this.reversedPost = new int[count];
+        this.reversedLow = new int[count];
+        label(false, post, low, treeLow);
+        label(true, reversedPost, reversedLow, null);
+        this.searches = ThreadLocal.withInitial(() -> new Search(count));
+    }
+
+    /**
+     * @return true if the vertex was known when the index was built
+     */
+
+    boolean covers(V vertex) {
+        return components.componentOf(vertex) >= 0;
+    }
+
+    /**
+     * @param sourceVertex      vertex {@link #covers(Object) covered} by the index
+     * @param destinationVertex vertex covered by the index
+     * @return true if a path leads from sourceVertex to destinationVertex
+     */
+
+    boolean isReachable(V sourceVertex, V destinationVertex) {
+        int source = components.componentOf(sourceVertex);
+        int destination = components.componentOf(destinationVertex);
+        if (source == destination) {
+            return true;
+        }
+        if (!mayReach(source, destination)) {
+            return false;
+        }
+        if (inTree(source, destination)) {
+            return true;
+        }
+        Search search = searches.get();
+        int epoch = search.next();
+        IntList stack = search.stack;
+        stack.clear();
+        stack.add(source);
+        search.marks[source] = epoch;
+        while (stack.size > 0) {
+            int component = stack.values[--stack.size];
+            for (int i = offsets[component]; i < offsets[component + 1]; i++) {
+                int next = targets[i];
+                if (next == destination) {
+                    return true;
+                }
+                if (search.marks[next] == epoch || !mayReach(next, destination)) {
+                    continue;
+                }
+                if (inTree(next, destination)) {
+                    return true;
+                }
+                search.marks[next] = epoch;
+                stack.add(next);
+            }
+        }
+        return false;
+    }
+
+    long getVersion() {
+        return components.getVersion();
+    }
+
+    private boolean mayReach(int source, int destination) {
+        return destination < source && low[source] <= low[destination] && post[destination] <= post[source]
+                && reversedLow[source] <= reversedLow[destination]
+                && reversedPost[destination] <= reversedPost[source];
+    }
+
+    private boolean inTree(int source, int destination) {
+        return treeLow[source] <= post[destination] && post[destination] <= post[source];
+    }
+
+    /**
+     * Sorts the condensation edges by source component into offsets and the
+     * returned targets, dropping repeated edges
+     */
+
+    private static int[] condense(int count, IntList from, IntList to, int[] offsets) {
+        for (int i = 0; i < from.size; i++) {
+            offsets[from.get(i) + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        int[] targets = new int[to.size];
+        int[] fill = Arrays.copyOf(offsets, count);
+        for (int i = 0; i < from.size; i++) {
+            targets[fill[from.get(i)]++] = to.get(i);
+        }
+
+        int[] seen = new int[count];
+        Arrays.fill(seen, -1);
+        int size = 0;
+        for (int c = 0; c < count; c++) {
+            int start = offsets[c];
+            offsets[c] = size;
+            for (int i = start; i < fill[c]; i++) {
+                if (seen[targets[i]] != c) {
+                    seen[targets[i]] = c;
+                    targets[size++] = targets[i];
+                }
+            }
+        }
+        offsets[count] = size;
+        return Arrays.copyOf(targets, size);
+    }
+
+    /**
+     * Iterative depth first traversal of the condensation, roots in topological
+     * order
+     *
+     * @param reversed visit roots and children in the opposite order
+     * @param treeLow  filled if not null
+     */
+
+    private void label(boolean reversed, int[] post, int[] low, int[] treeLow) {
+        int count = post.length;
+        boolean[] visited = new boolean[count];
+        int[] stack = new int[count];
+        int[] cursors = new int[count];
+        int rank = 0;
+        for (int r = 0; r < count; r++) {
+            int root = reversed ? r : count - 1 - r;
+            if (visited[root]) {
+                continue;
+            }
+            int depth = 0;
+            stack[0] = root;
+            cursors[0] = 0;
+            enter(root, visited, low, treeLow);
+            while (depth >= 0) {
+                int component = stack[depth];
+                int degree = offsets[component + 1] - offsets[component];
+                if (cursors[depth] < degree) {
+                    int i = cursors[depth]++;
+                    int child = targets[reversed ? offsets[component + 1] - 1 - i : offsets[component] + i];
+                    if (!visited[child]) {
+                        enter(child, visited, low, treeLow);
+                        stack[++depth] = child;
+                        cursors[depth] = 0;
+                    } else {
+                        // finished already, the condensation has no cycles
+                        low[component] = Math.min(low[component], low[child]);
+                    }
+                    continue;
+                }
+                post[component] = rank++;
+                low[component] = Math.min(low[component], post[component]);
+                if (treeLow != null) {
+                    treeLow[component] = Math.min(treeLow[component], post[component]);
+                }
+                if (--depth >= 0) {
+                    int parent = stack[depth];
+                    low[parent] = Math.min(low[parent], low[component]);
+                    if (treeLow != null) {
+                        treeLow[parent] = Math.min(treeLow[parent], treeLow[component]);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void enter(int component, boolean[] visited, int[] low, int[] treeLow) {
+        visited[component] = true;
+        low[component] = Integer.MAX_VALUE;
+        if (treeLow != null) {
+            treeLow[component] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Marks of the visited components, cleared by moving to the next epoch
+     */
+
+    private static final class Search {
+
+        final int[] marks;
+
+        final IntList stack = new IntList();
+
+        int epoch;
+
+        Search(int count) {
+            this.marks = new int[count];
+        }
+
+        int next() {
+            if (++epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+            return epoch;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.List;
+
+/**
+ * Result of a single source search: shortest paths from one source vertex to
+ * the vertices settled by the search. Distances are looked up in O(1), paths
+ * are extracted in O(path length). The tree doesn't follow later graph changes.
+ * 
+ * https://en.wikipedia.org/wiki/Shortest-path_tree
+ * 
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public interface ShortestPathTree<V> {
+
+    V getSource();
+
+    /**
+     * @param vertex
+     * @return true if the search settled the vertex, i.e. the shortest path to it
+     *         is known
+     */
+
+    boolean hasPathTo(V vertex);
+
+    /**
+     * @param vertex
+     * @return weight of the shortest path from the source, Integer.MAX_VALUE if
+     *         the vertex is unreachable or wasn't settled by the search
+     */
+
+    int getDistanceTo(V vertex);
+
+    /**
+     * @param vertex
+     * @return List of edges contained in the shortest path from the source, empty
+     *         if there is no such path known
+     */
+
+    List<Edge<V>> getPathTo(V vertex);
+
+}
@@ -12,6 +12,10 @@ public class SimpleGraphLib {
     private static final UnsynchronizedGraphFactory UNSYNCHRONIZED_FACTORY_INSTANCE = new UnsynchronizedGraphFactory();
 
     private static final SynchronizedGraphFactory SYNCHRONIZED_FACTORY_INSTANCE = new SynchronizedGraphFactory();
+
+    private static final ConcurrentGraphFactory CONCURRENT_FACTORY_INSTANCE = new ConcurrentGraphFactory();
+
+    private static final OffHeapGraphFactory OFF_HEAP_FACTORY_INSTANCE = new OffHeapGraphFactory();
    
     /**
      * Produces unsynchronized graph factory
@@ -32,4 +36,36 @@ public class SimpleGraphLib {
     public static GraphFactory getSynchronyzedGraphFactory() {
         return SYNCHRONIZED_FACTORY_INSTANCE;
     }
+
+    /**
+     * Produces factory of graphs without a global lock, which scale with concurrent writers
+     * 
+     * @return GraphFactory concurrent instance
+     */
+
+    public static GraphFactory getConcurrentGraphFactory() {
+        return CONCURRENT_FACTORY_INSTANCE;
+    }
+
+    /**
+     * Produces factory of graphs keeping their edges outside of the heap
+     * 
+     * @return GraphFactory off-heap instance
+     */
+
+    public static GraphFactory getOffHeapGraphFactory() {
+        return OFF_HEAP_FACTORY_INSTANCE;
+    }
+
+    /**
+     * Produces factory of graphs memoizing getPath results
+     * 
+     * @param graphFactory factory of the decorated graphs
+     * @param cacheSize    maximum number of cached paths per graph
+     * @return caching GraphFactory instance
+     */
+
+    public static CachingGraphFactory getCachingGraphFactory(GraphFactory graphFactory, int cacheSize) {
+        return new CachingGraphFactory(graphFactory, cacheSize);
+    }
 }
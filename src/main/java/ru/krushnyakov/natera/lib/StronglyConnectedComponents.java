@@ -0,0 +1,111 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm
+ * without recursion, so long paths don't overflow the stack. Components are
+ * numbered in reverse topological order of the condensation: an edge between
+ * components always leads to a smaller number.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+final class StronglyConnectedComponents<V> {
+
+    private final long version;
+
+    private final Map<V, Integer> components;
+
+    private int componentCount;
+
+    /**
+     * @param vertices
+     * @param adjacency lightest edges of the graph, only the neighbour keys are
+     *                  read
+     * @param version   {@link Graph#getVersion()} the adjacency was read at
+     */
+
+    StronglyConnectedComponents(Set<V> vertices, Map<V, ? extends Map<V, ?>> adjacency, long version) {
+        this.version = version;
+        this.components = new HashMap<>(vertices.size() * 4 / 3 + 1);
+        Map<V, Integer> indexes = new HashMap<>(vertices.size() * 4 / 3 + 1);
+        Map<V, Integer> lowLinks = new HashMap<>(vertices.size() * 4 / 3 + 1);
+        Deque<V> stack = new ArrayDeque<>();
+        Deque<V> path = new ArrayDeque<>();
+        Deque<Iterator<V>> neighbours = new ArrayDeque<>();
+
+        for (V root : vertices) {
+            if (indexes.containsKey(root)) {
+                continue;
+            }
+            visit(root, indexes, lowLinks, stack, path, neighbours, adjacency);
+            while (!path.isEmpty()) {
+                V vertex = path.peek();
+                Iterator<V> next = neighbours.peek();
+                if (next.hasNext()) {
+                    V neighbour = next.next();
+                    if (!indexes.containsKey(neighbour)) {
+                        visit(neighbour, indexes, lowLinks, stack, path, neighbours, adjacency);
+                    } else if (!components.containsKey(neighbour)) {
+                        // still on the stack
+                        lowLinks.put(vertex, Math.min(lowLinks.get(vertex), indexes.get(neighbour)));
+                    }
+                    continue;
+                }
+                path.pop();
+                neighbours.pop();
+                int lowLink = lowLinks.get(vertex);
+                if (!path.isEmpty()) {
+                    V parent = path.peek();
+                    lowLinks.put(parent, Math.min(lowLinks.get(parent), lowLink));
+                }
+                if (lowLink == indexes.get(vertex)) {
+                    V member;
+                    do {
+                        member = stack.pop();
+                        components.put(member, componentCount);
+                    } while (!member.equals(vertex));
+                    componentCount++;
+                }
+            }
+        }
+    }
+
+    private void visit(V vertex, Map<V, Integer> indexes, Map<V, Integer> lowLinks, Deque<V> stack, Deque<V> path,
+            Deque<Iterator<V>> neighbours, Map<V, ? extends Map<V, ?>> adjacency) {
+        int index = indexes.size();
+        indexes.put(vertex, index);
+        lowLinks.put(vertex, index);
+        stack.push(vertex);
+        path.push(vertex);
+        Map<V, ?> next = adjacency.get(vertex);
+        neighbours.push(next == null ? Collections.<V>emptyIterator() : next.keySet().iterator());
+    }
+
+    /**
+     * @param vertex
+     * @return component number of the vertex, -1 if it is unknown
+     */
+
+    int componentOf(V vertex) {
+        Integer component = components.get(vertex);
+        return component == null ? -1 : component;
+    }
+
+    int componentCount() {
+        return componentCount;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+}
@@ -1,10 +1,18 @@
 package ru.krushnyakov.natera.lib;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class SynchronizedGraphFactory implements GraphFactory {
 
@@ -28,13 +36,39 @@ public class SynchronizedGraphFactory implements GraphFactory {
         return new SynchronizedGraphDecorator<>(new DirectedGraph<>(vertices, edges));
     }
 
-    
+    @Override
+    public <V> Graph<V> createUndirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return new SynchronizedGraphDecorator<>(new UndirectedGraph<>(builder));
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return new SynchronizedGraphDecorator<>(new DirectedGraph<>(builder.build(false, false)));
+    }
+
+    /**
+     * Mutations take the write lock, queries share the read lock and run in
+     * parallel. Functions passed to traverse must not modify the graph: read
+     * lock can't be upgraded to the write one.
+     */
+
 private class SynchronizedGraphDecorator<V> implements Graph<V> {
     
         private Graph<V> graph;
         
         private ReadWriteLock lock = new ReentrantReadWriteLock();
 
+        /**
+         * Searches through this decorator, so they take the read lock
+         */
+        private final InFlightPathQueries<V> inFlightQueries = new InFlightPathQueries<>(this);
+
         public SynchronizedGraphDecorator(Graph<V> graph) {
             this.graph = graph;
         }
@@ -63,23 +97,173 @@ private class SynchronizedGraphDecorator<V> implements Graph<V> {
 
         @Override
         public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
-            lock.writeLock().lock();
+            lock.readLock().lock();
             try {
                 return graph.getPath(sourceVertex, destinationVertex);
             } finally {
-                lock.writeLock().unlock();
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public CompletableFuture<List<Edge<V>>> getPathAsync(V sourceVertex, V destinationVertex,
+                Executor executor) {
+            return inFlightQueries.getPath(sourceVertex, destinationVertex, executor);
+        }
+
+        @Override
+        public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathQueryContext context) {
+            lock.readLock().lock();
+            try {
+                return graph.getPath(sourceVertex, destinationVertex, context);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, PathStrategy strategy) {
+            lock.readLock().lock();
+            try {
+                return graph.getPath(sourceVertex, destinationVertex, strategy);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public List<Edge<V>> getPath(V sourceVertex, V destinationVertex, ToIntFunction<V> heuristic) {
+            lock.readLock().lock();
+            try {
+                return graph.getPath(sourceVertex, destinationVertex, heuristic);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public ShortestPathTree<V> getPathsFrom(V sourceVertex) {
+            lock.readLock().lock();
+            try {
+                return graph.getPathsFrom(sourceVertex);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public ShortestPathTree<V> getPathsFrom(V sourceVertex, PathStrategy strategy) {
+            lock.readLock().lock();
+            try {
+                return graph.getPathsFrom(sourceVertex, strategy);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public ShortestPathTree<V> getPaths(V sourceVertex, Collection<V> destinationVertices) {
+            lock.readLock().lock();
+            try {
+                return graph.getPaths(sourceVertex, destinationVertices);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean isReachable(V sourceVertex, V destinationVertex) {
+            lock.readLock().lock();
+            try {
+                return graph.isReachable(sourceVertex, destinationVertex);
+            } finally {
+                lock.readLock().unlock();
             }
         }
 
         @Override
         public List<?> traverse(Function<V, ?> function) {
-            lock.writeLock().lock();
+            lock.readLock().lock();
             try {
                 return graph.traverse(function);
             } finally {
-                lock.writeLock().unlock();
+                lock.readLock().unlock();
+            }
+
+        }
+
+        @Override
+        public List<?> traverse(Function<V, ?> function, int parallelism) {
+            lock.readLock().lock();
+            try {
+                return graph.traverse(function, parallelism);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public List<?> traverse(Function<V, ?> function, ForkJoinPool pool) {
+            lock.readLock().lock();
+            try {
+                return graph.traverse(function, pool);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void forEachVertex(Consumer<? super V> action) {
+            lock.readLock().lock();
+            try {
+                graph.forEachVertex(action);
+            } finally {
+                lock.readLock().unlock();
             }
+        }
 
+        @Override
+        public void forEachEdge(Consumer<? super Edge<V>> action) {
+            lock.readLock().lock();
+            try {
+                graph.forEachEdge(action);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Stream is consumed after the lock is released, so it runs over a copy
+         * of the vertices taken under the lock
+         */
+
+        @Override
+        public Stream<V> vertexStream() {
+            lock.readLock().lock();
+            try {
+                return graph.vertexStream().collect(Collectors.toList()).stream();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public Graph<V> snapshot() {
+            lock.readLock().lock();
+            try {
+                return graph.snapshot();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Version is an atomic counter, it can be read without the lock
+         */
+
+        @Override
+        public long getVersion() {
+            return graph.getVersion();
         }
 
     }
@@ -23,6 +23,22 @@ public class UndirectedGraph<V> extends DirectedGraph<V> {
             throw new IllegalArgumentException("Can initialize undirected graph only with undirected edges!");
     }
 
+    UndirectedGraph(GraphBuilder<V> builder) {
+        super(builder.build(true, false));
+    }
+
+    /**
+     * Answered by the component index without searching
+     */
+
+    @Override
+    public boolean isReachable(V sourceVertex, V destinationVertex) {
+        if (sourceVertex == null || destinationVertex == null) {
+            throw new IllegalArgumentException("Vertex can't be null");
+        }
+        return sourceVertex.equals(destinationVertex) || components.connected(sourceVertex, destinationVertex);
+    }
+
     @Override
     public Graph<V> addEdge(Edge<V> edge) {
         if (!(edge instanceof UndirectedEdge)) {
@@ -31,5 +31,21 @@ public class UnsynchronizedGraphFactory implements GraphFactory  {
         return new DirectedGraph<V>(vertices, edges);
     }
 
+    @Override
+    public <V> Graph<V> createUndirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return new UndirectedGraph<V>(builder);
+    }
+
+    @Override
+    public <V> Graph<V> createDirectedGraph(GraphBuilder<V> builder) {
+        if (builder == null) {
+            throw new IllegalArgumentException("Graph builder can't be null!");
+        }
+        return new DirectedGraph<V>(builder.build(false, false));
+    }
+
     
 }
@@ -0,0 +1,23 @@
+package ru.krushnyakov.natera.lib;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions of graphs which don't count their modifications: every call gets a
+ * new one, so no result computed from such a graph is ever reused
+ *
+ * @author kkrushnyakov
+ *
+ */
+final class UntrackedVersions {
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UntrackedVersions() {
+    }
+
+    static long next() {
+        return LAST.incrementAndGet();
+    }
+
+}
@@ -0,0 +1,75 @@
+package ru.krushnyakov.natera.lib;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts vertices to the bytes of the {@link GraphFile} vertex dictionary and
+ * back. Equal vertices must be serialized to equal bytes, vertices are looked
+ * up in a mapped file by their bytes.
+ *
+ * @author kkrushnyakov
+ * @param <V> vertices type
+ *
+ */
+public interface VertexSerializer<V> {
+
+    byte[] serialize(V vertex);
+
+    /**
+     * @param bytes buffer holding exactly the bytes of one vertex between its
+     *              position and limit
+     * @return vertex
+     */
+
+    V deserialize(ByteBuffer bytes);
+
+    static VertexSerializer<Integer> integers() {
+        return new VertexSerializer<Integer>() {
+
+            @Override
+            public byte[] serialize(Integer vertex) {
+                return ByteBuffer.allocate(Integer.BYTES).putInt(vertex).array();
+            }
+
+            @Override
+            public Integer deserialize(ByteBuffer bytes) {
+                return bytes.getInt(bytes.position());
+            }
+
+        };
+    }
+
+    static VertexSerializer<Long> longs() {
+        return new VertexSerializer<Long>() {
+
+            @Override
+            public byte[] serialize(Long vertex) {
+                return ByteBuffer.allocate(Long.BYTES).putLong(vertex).array();
+            }
+
+            @Override
+            public Long deserialize(ByteBuffer bytes) {
+                return bytes.getLong(bytes.position());
+            }
+
+        };
+    }
+
+    static VertexSerializer<String> strings() {
+        return new VertexSerializer<String>() {
+
+            @Override
+            public byte[] serialize(String vertex) {
+                return vertex.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public String deserialize(ByteBuffer bytes) {
+                return StandardCharsets.UTF_8.decode(bytes).toString();
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,71 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import ru.krushnyakov.natera.lib.CachingGraph;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+
+public class CachingGraphTest {
+
+    /*
+        A---1---B---1---C
+        |               |
+        +-------5-------+
+     */
+
+    private CachingGraph<String> createGraph(int cacheSize) {
+        CachingGraph<String> graph = SimpleGraphLib
+                .getCachingGraphFactory(SimpleGraphLib.getSynchronyzedGraphFactory(), cacheSize)
+                .createUndirectedGraph();
+        graph.addEdge(new UndirectedEdge<>("A", "B", 1));
+        graph.addEdge(new UndirectedEdge<>("B", "C", 1));
+        graph.addEdge(new UndirectedEdge<>("A", "C", 5));
+        return graph;
+    }
+
+    @Test
+    public void repeatedQueryHitsCacheTest() {
+        CachingGraph<String> graph = createGraph(10);
+
+        assertEquals(Arrays.asList(new UndirectedEdge<>("A", "B", 1), new UndirectedEdge<>("B", "C", 1)),
+                graph.getPath("A", "C"));
+        assertEquals(Arrays.asList(new UndirectedEdge<>("A", "B", 1), new UndirectedEdge<>("B", "C", 1)),
+                graph.getPath("A", "C"));
+
+        assertEquals(1, graph.getHitCount());
+        assertEquals(1, graph.getMissCount());
+    }
+
+    @Test
+    public void mutationInvalidatesCachedPathsTest() {
+        CachingGraph<String> graph = createGraph(10);
+        graph.getPath("A", "C");
+
+        graph.addEdge(new UndirectedEdge<>("A", "C", 1));
+
+        assertEquals(Arrays.asList(new UndirectedEdge<>("A", "C", 1)), graph.getPath("A", "C"));
+        assertEquals(0, graph.getHitCount());
+        assertEquals(2, graph.getMissCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedPathIsEvictedTest() {
+        CachingGraph<String> graph = createGraph(2);
+        graph.getPath("A", "C");
+        graph.getPath("A", "B");
+        graph.getPath("A", "C");
+        graph.getPath("B", "C");
+
+        assertEquals(2, graph.getCachedPathCount());
+        graph.getPath("A", "C");
+        graph.getPath("A", "B");
+        assertEquals(2, graph.getHitCount());
+        assertEquals(4, graph.getMissCount());
+    }
+
+}
@@ -0,0 +1,73 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+
+public class ConcurrentGraphTest {
+
+    private static final int THREADS = 4;
+
+    @Test(timeout = 30000)
+    public void concurrentAddEdgeTest() throws Exception {
+        Random random = new Random(3);
+        Set<Integer> vertices = new HashSet<>();
+        for (int v = 0; v < 500; v++) {
+            vertices.add(v);
+        }
+        List<Edge<Integer>> edges = new ArrayList<>(RandomGraphPathTest.randomEdges(random, vertices, true));
+        Graph<Integer> graph = SimpleGraphLib.getConcurrentGraphFactory().createDirectedGraph();
+        vertices.forEach(graph::addVertex);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    for (int e = thread; e < edges.size(); e += THREADS) {
+                        graph.addEdge(edges.get(e));
+                        graph.getPath(edges.get(e).getSource(), random.nextInt(vertices.size()));
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Set<Edge<Integer>> edgeSet = new HashSet<>(edges);
+        for (int q = 0; q < 200; q++) {
+            Integer source = random.nextInt(vertices.size());
+            Integer destination = random.nextInt(vertices.size());
+            List<Edge<Integer>> path = graph.getPath(source, destination);
+            RandomGraphPathTest.assertValidPath(source, destination, path);
+            assertEquals(RandomGraphPathTest.weightOf(RandomGraphPathTest.referencePath(vertices, edgeSet, source, destination)),
+                    RandomGraphPathTest.weightOf(path));
+        }
+        assertEquals(graph.traverse(v -> v).size(), graph.snapshot().traverse(v -> v).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void concurrentUndirectedGraphRejectsDirectedEdgesTest() {
+        SimpleGraphLib.getConcurrentGraphFactory().<String>createUndirectedGraph()
+                .addEdge(new DirectedEdge<>("A", "B"));
+    }
+
+}
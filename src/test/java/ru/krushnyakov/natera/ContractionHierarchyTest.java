@@ -0,0 +1,139 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import ru.krushnyakov.natera.lib.ContractionHierarchy;
+import ru.krushnyakov.natera.lib.ContractionHierarchyGraph;
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.DirectedGraph;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.GraphFactory;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+
+public class ContractionHierarchyTest {
+
+    @Test
+    public void hierarchyMatchesReferenceTest() {
+        Random random = new Random(17);
+        for (int i = 0; i < 30; i++) {
+            Set<Integer> vertices = RandomGraphPathTest.randomVertices(random);
+            Set<Edge<Integer>> edges = RandomGraphPathTest.randomEdges(random, vertices, true);
+            // off-heap snapshots aren't CsrGraphs, the hierarchy copies them
+            GraphFactory factory = i % 2 == 0 ? SimpleGraphLib.getGraphFactory()
+                    : SimpleGraphLib.getOffHeapGraphFactory();
+            Graph<Integer> graph = factory.createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            ContractionHierarchy<Integer> hierarchy = new ContractionHierarchy<>(graph);
+            for (Integer source : vertices) {
+                for (Integer destination : vertices) {
+                    List<Edge<Integer>> expected = RandomGraphPathTest.referencePath(vertices, edges, source,
+                            destination);
+                    List<Edge<Integer>> actual = hierarchy.getPath(source, destination);
+                    RandomGraphPathTest.assertValidPath(source, destination, actual);
+                    assertEquals(RandomGraphPathTest.weightOf(expected), RandomGraphPathTest.weightOf(actual));
+                    assertEquals(expected.isEmpty(), actual.isEmpty());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void queriedHierarchyIsCollectedTest() throws Exception {
+        RandomGraphPathTest.assertCollectedAfterQuery(
+                () -> new ContractionHierarchy<>(SimpleGraphLib.getGraphFactory().<Integer>createDirectedGraph()
+                        .addEdge(new DirectedEdge<>(1, 2))),
+                hierarchy -> assertEquals(1, hierarchy.getPath(1, 2).size()));
+    }
+
+    @Test
+    public void shortcutsUnpackIntoOriginalEdgesTest() {
+        // A - B - C - D chain, contracting inner vertices creates shortcuts
+        Graph<String> graph = SimpleGraphLib.getGraphFactory().createUndirectedGraph();
+        graph.addEdge(new UndirectedEdge<>("A", "B", 1));
+        graph.addEdge(new UndirectedEdge<>("B", "C", 2));
+        graph.addEdge(new UndirectedEdge<>("C", "D", 3));
+        ContractionHierarchy<String> hierarchy = new ContractionHierarchy<>(graph);
+
+        assertEquals(Arrays.asList(new UndirectedEdge<>("A", "B", 1), new UndirectedEdge<>("B", "C", 2),
+                new UndirectedEdge<>("C", "D", 3)), hierarchy.getPath("A", "D"));
+        assertTrue(hierarchy.getPath("A", "E").isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void untrackedGraphIsRejectedTest() {
+        Graph<String> graph = new RandomGraphPathTest.PathOnlyGraph<>(
+                SimpleGraphLib.getGraphFactory().createUndirectedGraph());
+        graph.addEdge(new UndirectedEdge<>("A", "B", 1));
+        new ContractionHierarchyGraph<>(graph, Runnable::run);
+    }
+
+    @Test
+    public void hierarchyIsRebuiltAfterChangeTest() {
+        Graph<String> graph = SimpleGraphLib.getSynchronyzedGraphFactory().createUndirectedGraph();
+        graph.addEdge(new UndirectedEdge<>("A", "B", 1));
+        graph.addEdge(new UndirectedEdge<>("B", "C", 1));
+        ContractionHierarchyGraph<String> hierarchyGraph = new ContractionHierarchyGraph<>(graph, Runnable::run);
+        assertTrue(hierarchyGraph.isHierarchyCurrent());
+        assertEquals(2, hierarchyGraph.getPath("A", "C").size());
+
+        hierarchyGraph.addEdge(new UndirectedEdge<>("A", "C", 1));
+        assertFalse(hierarchyGraph.isHierarchyCurrent());
+        // answered by the graph, the rebuild runs in the calling thread here
+        assertEquals(Arrays.asList(new UndirectedEdge<>("A", "C", 1)), hierarchyGraph.getPath("A", "C"));
+        assertTrue(hierarchyGraph.isHierarchyCurrent());
+        assertEquals(Arrays.asList(new UndirectedEdge<>("A", "C", 1)), hierarchyGraph.getPath("A", "C"));
+    }
+
+    @Test
+    public void outdatedRebuildDoesNotReplaceNewerHierarchyTest() throws Exception {
+        CountDownLatch snapshotStarted = new CountDownLatch(1);
+        CountDownLatch newerPublished = new CountDownLatch(1);
+        AtomicBoolean blockNextSnapshot = new AtomicBoolean();
+        Graph<Integer> graph = new DirectedGraph<Integer>() {
+
+            @Override
+            public Graph<Integer> snapshot() {
+                if (blockNextSnapshot.compareAndSet(true, false)) {
+                    snapshotStarted.countDown();
+                    try {
+                        newerPublished.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.snapshot();
+            }
+
+        };
+        graph.addEdge(new DirectedEdge<>(1, 2, 5));
+        ContractionHierarchyGraph<Integer> hierarchyGraph = new ContractionHierarchyGraph<>(graph, Runnable::run);
+
+        // an older rebuild takes the version, then stalls in the snapshot
+        graph.addEdge(new DirectedEdge<>(2, 3, 5));
+        blockNextSnapshot.set(true);
+        Thread older = new Thread(hierarchyGraph::rebuild);
+        older.start();
+        snapshotStarted.await();
+        graph.addEdge(new DirectedEdge<>(1, 3, 1));
+        hierarchyGraph.rebuild();
+        newerPublished.countDown();
+        older.join();
+
+        assertTrue(hierarchyGraph.isHierarchyCurrent());
+        assertEquals(Arrays.asList(new DirectedEdge<>(1, 3, 1)), hierarchyGraph.getHierarchy().getPath(1, 3));
+    }
+
+}
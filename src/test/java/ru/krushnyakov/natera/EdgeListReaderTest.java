@@ -0,0 +1,99 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.EdgeListReader;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.IngestionStatistics;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+
+public class EdgeListReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readEdgesMatchFileTest() throws IOException {
+        Random random = new Random(81);
+        for (int i = 0; i < 20; i++) {
+            Set<Integer> vertices = RandomGraphPathTest.randomVertices(random);
+            Set<Edge<Integer>> edges = RandomGraphPathTest.randomEdges(random, vertices, true);
+            StringBuilder text = new StringBuilder("source,destination,weight,directed\n");
+            for (Edge<Integer> edge : edges) {
+                String delimiter = random.nextBoolean() ? "," : "\t";
+                boolean directed = edge.getClass() != UndirectedEdge.class;
+                text.append(edge.getSource()).append(delimiter).append(' ').append(edge.getDestination());
+                boolean flag = !directed || random.nextBoolean();
+                if (flag || edge.getWeight() != 1 || random.nextBoolean()) {
+                    text.append(delimiter).append(edge.getWeight());
+                }
+                if (flag) {
+                    text.append(delimiter).append(directed ? "true" : "0");
+                }
+                text.append(random.nextBoolean() ? "\r\n" : "\n");
+                if (random.nextInt(10) == 0) {
+                    text.append(random.nextBoolean() ? "# comment\n" : "\n");
+                }
+            }
+            Path path = folder.newFile().toPath();
+            Files.write(path, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            // tiny chunks, so lines cross chunk borders and some are longer than a chunk
+            EdgeListReader<Integer> reader = new EdgeListReader<>(Integer::valueOf).skipHeader(true)
+                    .chunkSize(1 + random.nextInt(40)).parallelism(3).maxPendingChunks(2);
+            List<Edge<Integer>> read = new ArrayList<>();
+            IngestionStatistics statistics = reader.read(path, read::addAll);
+            assertEquals(edges.size(), read.size());
+            assertEquals(edges, new HashSet<>(read));
+            assertEquals(edges.size(), statistics.getEdges());
+            assertEquals(Files.size(path), statistics.getBytes());
+
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph();
+            vertices.forEach(graph::addVertex);
+            reader.read(path, graph);
+            for (int q = 0; q < 20; q++) {
+                Integer source = random.nextInt(vertices.size());
+                Integer destination = random.nextInt(vertices.size());
+                assertEquals(
+                        RandomGraphPathTest
+                                .weightOf(RandomGraphPathTest.referencePath(vertices, edges, source, destination)),
+                        RandomGraphPathTest.weightOf(graph.getPath(source, destination)));
+            }
+        }
+    }
+
+    @Test
+    public void lastLineWithoutLineEndIsReadTest() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, "a\tb\t3\nb\tc\t4\t0".getBytes(StandardCharsets.UTF_8));
+        List<Edge<String>> read = new ArrayList<>();
+        new EdgeListReader<>(String::valueOf).delimiter('\t').read(path, read::addAll);
+        assertEquals(2, read.size());
+        assertEquals(new UndirectedEdge<>("c", "b", 4), read.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedLineIsRejectedTest() throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, "1,2,3\n1,2,heavy\n".getBytes(StandardCharsets.UTF_8));
+        new EdgeListReader<>(Integer::valueOf).read(path, batch -> {
+        });
+    }
+
+}
@@ -0,0 +1,119 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.GraphFile;
+import ru.krushnyakov.natera.lib.MappedGraph;
+import ru.krushnyakov.natera.lib.ShortestPathTree;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+import ru.krushnyakov.natera.lib.VertexSerializer;
+
+public class GraphFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mappedPathsMatchReferenceTest() throws IOException {
+        Random random = new Random(71);
+        Path path = folder.newFile().toPath();
+        for (int i = 0; i < 20; i++) {
+            Set<Integer> vertices = RandomGraphPathTest.randomVertices(random);
+            Set<Edge<Integer>> edges = RandomGraphPathTest.randomEdges(random, vertices, true);
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    new HashSet<>(edges));
+            GraphFile.write(graph, path, VertexSerializer.integers());
+            MappedGraph<Integer> mapped = GraphFile.open(path, VertexSerializer.integers(), true);
+            assertEquals(vertices, mapped.vertexStream().collect(Collectors.toSet()));
+            Set<Edge<Integer>> listed = new HashSet<>();
+            mapped.forEachEdge(listed::add);
+            assertTrue(edges.containsAll(listed));
+            Graph<Integer> relisted = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    listed);
+            for (int q = 0; q < 20; q++) {
+                Integer source = random.nextInt(vertices.size());
+                Integer destination = random.nextInt(vertices.size());
+                List<Edge<Integer>> expected = RandomGraphPathTest.referencePath(vertices, edges, source,
+                        destination);
+                List<Edge<Integer>> actual = mapped.getPath(source, destination);
+                RandomGraphPathTest.assertValidPath(source, destination, actual);
+                assertTrue(edges.containsAll(actual));
+                assertEquals(RandomGraphPathTest.weightOf(expected), RandomGraphPathTest.weightOf(actual));
+                assertEquals(RandomGraphPathTest.weightOf(expected),
+                        RandomGraphPathTest.weightOf(relisted.getPath(source, destination)));
+                ShortestPathTree<Integer> tree = mapped.getPathsFrom(source);
+                assertEquals(RandomGraphPathTest.weightOf(expected),
+                        RandomGraphPathTest.weightOf(tree.getPathTo(destination)));
+            }
+        }
+    }
+
+    @Test
+    public void mappedGraphIsWrittenAgainTest() throws IOException {
+        Graph<String> graph = SimpleGraphLib.getGraphFactory().<String>createUndirectedGraph()
+                .addEdge(new UndirectedEdge<>("Moscow", "Tver", 3)).addEdge(new UndirectedEdge<>("Tver", "Klin", 2))
+                .addVertex("Lonely");
+        Path first = folder.newFile().toPath();
+        Path second = folder.newFile().toPath();
+        GraphFile.write(graph, first, VertexSerializer.strings());
+        GraphFile.write(GraphFile.open(first, VertexSerializer.strings()), second, VertexSerializer.strings());
+        MappedGraph<String> mapped = GraphFile.open(second, VertexSerializer.strings(), true);
+        assertEquals(4, mapped.vertexCount());
+        List<Edge<String>> path = mapped.getPath("Klin", "Moscow");
+        assertEquals(2, path.size());
+        assertEquals(new UndirectedEdge<>("Tver", "Klin", 2), path.get(0));
+        assertEquals(new UndirectedEdge<>("Moscow", "Tver", 3), path.get(1));
+        assertTrue(mapped.getPath("Lonely", "Tver").isEmpty());
+        assertTrue(mapped.getPath("Unknown", "Tver").isEmpty());
+    }
+
+    @Test
+    public void queriedMappedGraphIsCollectedTest() throws Exception {
+        Path path = folder.newFile().toPath();
+        GraphFile.write(SimpleGraphLib.getGraphFactory().<Integer>createDirectedGraph()
+                .addEdge(new DirectedEdge<>(1, 2)), path, VertexSerializer.integers());
+        RandomGraphPathTest.assertCollectedAfterQuery(() -> {
+            try {
+                return GraphFile.open(path, VertexSerializer.integers());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, mapped -> assertEquals(1, mapped.getPath(1, 2).size()));
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptedFileIsRejectedTest() throws IOException {
+        File file = folder.newFile();
+        Graph<Integer> graph = SimpleGraphLib.getGraphFactory().<Integer>createDirectedGraph()
+                .addEdge(new DirectedEdge<>(1, 2, 5));
+        GraphFile.write(graph, file.toPath(), VertexSerializer.integers());
+        try (RandomAccessFile content = new RandomAccessFile(file, "rw")) {
+            content.seek(content.length() - 1);
+            int last = content.read();
+            content.seek(content.length() - 1);
+            content.write(last ^ 1);
+        }
+        GraphFile.open(file.toPath(), VertexSerializer.integers(), true);
+    }
+
+}
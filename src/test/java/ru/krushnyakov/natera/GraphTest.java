@@ -1,9 +1,20 @@
 package ru.krushnyakov.natera;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Test;
 
@@ -176,6 +187,42 @@ public class GraphTest {
     }
 
     
+    @Test
+    public void traverseRunsInGivenPoolTest() {
+        Set<Integer> vertices = IntStream.range(0, 10000).boxed().collect(Collectors.toSet());
+        Graph<Integer> graph = SimpleGraphLib.getSynchronyzedGraphFactory().createDirectedGraph(vertices, new HashSet<>());
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Set<ForkJoinPool> pools = Collections.synchronizedSet(new HashSet<>());
+            for (Graph<Integer> g : Arrays.asList(graph, graph.snapshot())) {
+                assertEquals(g.traverse(v -> v * 2), g.traverse(v -> {
+                    pools.add(ForkJoinTask.getPool());
+                    return v * 2;
+                }, pool));
+            }
+            assertEquals(Collections.singleton(pool), pools);
+            assertFalse(pool.isShutdown());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelTraverseTest() {
+        Set<Integer> vertices = IntStream.range(0, 10000).boxed().collect(Collectors.toSet());
+        Graph<Integer> graph = SimpleGraphLib.getSynchronyzedGraphFactory().createDirectedGraph(vertices, new HashSet<>());
+
+        for (Graph<Integer> g : Arrays.asList(graph, graph.snapshot())) {
+            assertEquals(g.traverse(v -> v * 2), g.traverse(v -> v * 2, 4));
+            assertEquals(g.traverse(v -> v * 2),
+                    g.traverse(v -> v * 2, ForkJoinPool.getCommonPoolParallelism() + 1));
+            assertEquals(49995000L, g.vertexStream().parallel().mapToLong(Integer::longValue).sum());
+            LongAdder sum = new LongAdder();
+            g.forEachVertex(sum::add);
+            assertEquals(49995000L, sum.sum());
+        }
+    }
+
 /*
     +---1---+
     |       |
@@ -204,4 +251,28 @@ public class GraphTest {
       assertEquals(Arrays.asList(new UndirectedEdge<>("A", "B")), graph.getPath("B", "A"));
   }
   
+  /*
+    A---1---B
+   
+   */
+
+  @Test(timeout = 10000)
+  public void synchronizedGraphParallelQueriesTest() throws Exception {
+      Graph<String> graph = SimpleGraphLib.getSynchronyzedGraphFactory().<String>createUndirectedGraph()
+              .addEdge(new UndirectedEdge<>("A", "B"));
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+          // the other query has to complete while this traverse still holds the lock
+          graph.traverse(v -> {
+              try {
+                  return executor.submit(() -> graph.getPath("A", "B")).get();
+              } catch (InterruptedException | ExecutionException e) {
+                  throw new IllegalStateException(e);
+              }
+          });
+      } finally {
+          executor.shutdownNow();
+      }
+  }
+
 }
@@ -0,0 +1,84 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import org.junit.Test;
+
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.GraphFactory;
+import ru.krushnyakov.natera.lib.LandmarkIndex;
+import ru.krushnyakov.natera.lib.LandmarkSelection;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+
+public class LandmarkIndexTest {
+
+    @Test
+    public void landmarkPathsMatchReferenceTest() {
+        Random random = new Random(61);
+        for (LandmarkSelection selection : LandmarkSelection.values()) {
+            for (int i = 0; i < 20; i++) {
+                Set<Integer> vertices = RandomGraphPathTest.randomVertices(random);
+                Set<Edge<Integer>> edges = RandomGraphPathTest.randomEdges(random, vertices, true);
+                // off-heap snapshots aren't CsrGraphs, the index copies them
+                GraphFactory factory = i % 2 == 0 ? SimpleGraphLib.getGraphFactory()
+                        : SimpleGraphLib.getOffHeapGraphFactory();
+                Graph<Integer> graph = factory.createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+                LandmarkIndex<Integer> index = new LandmarkIndex<>(graph, 1 + random.nextInt(6), selection);
+                for (int q = 0; q < 20; q++) {
+                    Integer source = random.nextInt(vertices.size());
+                    Integer destination = random.nextInt(vertices.size());
+                    List<Edge<Integer>> expected = RandomGraphPathTest.referencePath(vertices, edges, source,
+                            destination);
+                    List<Edge<Integer>> actual = index.getPath(source, destination);
+                    RandomGraphPathTest.assertValidPath(source, destination, actual);
+                    assertEquals(selection + " path " + source + " -> " + destination,
+                            RandomGraphPathTest.weightOf(expected), RandomGraphPathTest.weightOf(actual));
+                    assertEquals(RandomGraphPathTest.weightOf(expected),
+                            RandomGraphPathTest.weightOf(graph.getPath(source, destination,
+                                    index.heuristicTo(destination))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void boundsAreAdmissibleTest() {
+        Random random = new Random(62);
+        Set<Integer> vertices = RandomGraphPathTest.randomVertices(random);
+        Set<Edge<Integer>> edges = RandomGraphPathTest.randomEdges(random, vertices, true);
+        Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                new HashSet<>(edges));
+        LandmarkIndex<Integer> index = new LandmarkIndex<>(graph, 4, LandmarkSelection.AVOID);
+        for (Integer destination : vertices) {
+            ToIntFunction<Integer> heuristic = index.heuristicTo(destination);
+            for (Integer vertex : vertices) {
+                assertTrue(heuristic.applyAsInt(vertex) >= 0);
+                if (graph.getPathsFrom(vertex).hasPathTo(destination)) {
+                    assertTrue(heuristic.applyAsInt(vertex) <= graph.getPathsFrom(vertex).getDistanceTo(destination));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void memoryIsReportedPerLandmarkTest() {
+        Random random = new Random(63);
+        Set<Integer> vertices = RandomGraphPathTest.randomVertices(random);
+        Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                RandomGraphPathTest.randomEdges(random, vertices, true));
+        LandmarkIndex<Integer> index = new LandmarkIndex<>(graph, 3, LandmarkSelection.FARTHEST);
+
+        assertEquals(3, new HashSet<>(index.getLandmarks()).size());
+        assertEquals(8L * vertices.size(), index.getBytesPerLandmark());
+        assertEquals(3 * index.getBytesPerLandmark(), index.getMemoryBytes());
+    }
+
+}
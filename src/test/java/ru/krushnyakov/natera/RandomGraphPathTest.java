@@ -0,0 +1,745 @@
+package ru.krushnyakov.natera;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import ru.krushnyakov.natera.lib.BatchPathQuery;
+import ru.krushnyakov.natera.lib.CachingGraph;
+import ru.krushnyakov.natera.lib.CsrGraph;
+import ru.krushnyakov.natera.lib.DirectedEdge;
+import ru.krushnyakov.natera.lib.Edge;
+import ru.krushnyakov.natera.lib.Graph;
+import ru.krushnyakov.natera.lib.GraphBuilder;
+import ru.krushnyakov.natera.lib.GraphFactory;
+import ru.krushnyakov.natera.lib.IntGraph;
+import ru.krushnyakov.natera.lib.PathQueryContext;
+import ru.krushnyakov.natera.lib.PathStrategy;
+import ru.krushnyakov.natera.lib.ShortestPathTree;
+import ru.krushnyakov.natera.lib.SimpleGraphLib;
+import ru.krushnyakov.natera.lib.UndirectedEdge;
+
+/**
+ * Compares path search results with the original O(V^2) scan-based Dijkstra on
+ * random multigraphs.
+ */
+public class RandomGraphPathTest {
+
+    private static final int GRAPHS = 30;
+
+    private static final int QUERIES_PER_GRAPH = 40;
+
+    @Test
+    public void directedGraphMatchesReferenceTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    new HashSet<>(edges));
+            assertMatchesReference(random, graph, vertices, edges);
+        }
+    }
+
+    @Test
+    public void undirectedGraphMatchesReferenceTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, false);
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createUndirectedGraph();
+            vertices.forEach(graph::addVertex);
+            edges.forEach(graph::addEdge);
+            assertMatchesReference(random, graph, vertices, edges);
+        }
+    }
+
+    @Test
+    public void unitWeightGraphMatchesReferenceTest() {
+        Random random = new Random(3);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true, 1);
+            Graph<Integer> graph = SimpleGraphLib.getConcurrentGraphFactory()
+                    .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            assertMatchesReference(random, graph, vertices, edges);
+        }
+    }
+
+    @Test
+    public void heavyWeightGraphMatchesReferenceTest() {
+        Random random = new Random(5);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true, 1000);
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    new HashSet<>(edges));
+            assertMatchesReference(random, graph, vertices, edges);
+        }
+    }
+
+    @Test
+    public void bulkLoadedGraphMatchesReferenceTest() {
+        Random random = new Random(61);
+        List<GraphFactory> factories = Arrays.asList(SimpleGraphLib.getGraphFactory(),
+                SimpleGraphLib.getSynchronyzedGraphFactory(), SimpleGraphLib.getConcurrentGraphFactory());
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> directedEdges = randomEdges(random, vertices, true);
+            Set<Edge<Integer>> undirectedEdges = randomEdges(random, vertices, false);
+            for (GraphFactory factory : factories) {
+                for (int parallelism : new int[] { 1, 3 }) {
+                    GraphBuilder<Integer> directed = new GraphBuilder<Integer>().parallelism(parallelism)
+                            .expectedEdges(directedEdges.size()).addEdges(directedEdges);
+                    vertices.forEach(directed::addVertex);
+                    assertMatchesReference(random, factory.createDirectedGraph(directed), vertices, directedEdges);
+
+                    GraphBuilder<Integer> undirected = new GraphBuilder<Integer>().parallelism(parallelism)
+                            .addEdges(undirectedEdges.stream());
+                    vertices.forEach(undirected::addVertex);
+                    assertMatchesReference(random, factory.createUndirectedGraph(undirected), vertices,
+                            undirectedEdges);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bulkLoadedUndirectedGraphRejectsDirectedEdgesTest() {
+        SimpleGraphLib.getGraphFactory().createUndirectedGraph(
+                new GraphBuilder<Integer>().addEdge(new UndirectedEdge<>(1, 2)).addEdge(new DirectedEdge<>(2, 3)));
+    }
+
+    @Test
+    public void offHeapGraphMatchesReferenceTest() {
+        Random random = new Random(91);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> directedEdges = randomEdges(random, vertices, true);
+            Graph<Integer> directed = SimpleGraphLib.getOffHeapGraphFactory()
+                    .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(directedEdges));
+            assertMatchesReference(random, directed, vertices, directedEdges);
+            assertMatchesReference(random, directed.snapshot(), vertices, directedEdges);
+
+            Set<Edge<Integer>> undirectedEdges = randomEdges(random, vertices, false);
+            Graph<Integer> undirected = SimpleGraphLib.getOffHeapGraphFactory().createUndirectedGraph();
+            vertices.forEach(undirected::addVertex);
+            undirectedEdges.forEach(undirected::addEdge);
+            assertMatchesReference(random, undirected, vertices, undirectedEdges);
+        }
+    }
+
+    @Test
+    public void forEachEdgeKeepsPathsTest() {
+        Random random = new Random(79);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            Graph<Integer> graph = SimpleGraphLib.getSynchronyzedGraphFactory()
+                    .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            Graph<Integer> offHeap = SimpleGraphLib.getOffHeapGraphFactory()
+                    .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            Set<Edge<Integer>> listed = new HashSet<>();
+            graph.forEachEdge(listed::add);
+            assertEquals(edges, listed);
+            for (Graph<Integer> g : Arrays.asList(graph.snapshot(), offHeap, offHeap.snapshot())) {
+                assertListedEdgesKeepPaths(random, g, vertices, edges);
+            }
+
+            Set<Edge<Integer>> undirectedEdges = randomEdges(random, vertices, false);
+            Graph<Integer> adapter = SimpleGraphLib.getGraphFactory().createIntUndirectedGraph().asGraph();
+            vertices.forEach(adapter::addVertex);
+            undirectedEdges.forEach(adapter::addEdge);
+            assertListedEdgesKeepPaths(random, adapter, vertices, undirectedEdges);
+        }
+    }
+
+    @Test
+    public void intGraphMatchesReferenceTest() {
+        Random random = new Random(57);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> directedEdges = randomEdges(random, vertices, true);
+            directedEdges.removeIf(e -> e instanceof UndirectedEdge);
+            IntGraph directed = SimpleGraphLib.getGraphFactory().createIntDirectedGraph();
+            directed.addVertex(vertices.size() - 1);
+            directedEdges.forEach(e -> directed.addEdge(e.getSource(), e.getDestination(), e.getWeight()));
+            assertMatchesReference(random, directed.asGraph(), vertices, directedEdges);
+            assertMatchesReference(random, directed.snapshot().asGraph(), vertices, directedEdges);
+
+            Set<Edge<Integer>> undirectedEdges = randomEdges(random, vertices, false);
+            IntGraph undirected = SimpleGraphLib.getGraphFactory().createIntUndirectedGraph();
+            Graph<Integer> adapter = undirected.asGraph();
+            vertices.forEach(adapter::addVertex);
+            undirectedEdges.forEach(adapter::addEdge);
+            assertMatchesReference(random, adapter, vertices, undirectedEdges);
+
+            for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                int source = random.nextInt(vertices.size());
+                int destination = random.nextInt(vertices.size());
+                int expected = weightOf(referencePath(vertices, undirectedEdges, source, destination));
+                int[] path = undirected.getPath(source, destination);
+                int weight = 0;
+                for (int v = 1; v < path.length; v++) {
+                    weight += weightOf(referencePath(vertices, undirectedEdges, path[v - 1], path[v]));
+                }
+                assertEquals(expected, weight);
+                assertEquals(source == destination || expected > 0, path.length > 0);
+                assertEquals(expected > 0 || source == destination ? expected : Integer.MAX_VALUE,
+                        undirected.getDistance(source, destination));
+            }
+        }
+    }
+
+    @Test
+    public void offHeapSnapshotIgnoresLaterEdgesTest() {
+        Graph<Integer> graph = SimpleGraphLib.getOffHeapGraphFactory().<Integer>createDirectedGraph()
+                .addEdge(new DirectedEdge<>(1, 2, 10));
+        Graph<Integer> snapshot = graph.snapshot();
+        graph.addEdge(new DirectedEdge<>(1, 3, 1)).addEdge(new DirectedEdge<>(3, 2, 1));
+        assertEquals(2, weightOf(graph.getPath(1, 2)));
+        assertEquals(10, weightOf(snapshot.getPath(1, 2)));
+        assertTrue(snapshot.getPath(1, 3).isEmpty());
+    }
+
+    @Test
+    public void isReachableFollowsAddedEdgesTest() {
+        for (GraphFactory factory : Arrays.asList(SimpleGraphLib.getGraphFactory(),
+                SimpleGraphLib.getSynchronyzedGraphFactory(), SimpleGraphLib.getConcurrentGraphFactory())) {
+            Graph<Integer> graph = factory.<Integer>createDirectedGraph().addEdge(new DirectedEdge<>(1, 2))
+                    .addEdge(new DirectedEdge<>(2, 1)).addVertex(3);
+            assertTrue(graph.isReachable(1, 2));
+            assertFalse(graph.isReachable(1, 3));
+            graph.addEdge(new DirectedEdge<>(3, 2));
+            assertTrue(graph.isReachable(3, 1));
+            assertFalse(graph.isReachable(1, 3));
+            graph.addEdge(new DirectedEdge<>(1, 3));
+            assertTrue(graph.isReachable(2, 3));
+        }
+    }
+
+    @Test
+    public void isReachableMatchesBreadthFirstSearchTest() {
+        Random random = new Random(29);
+        for (int i = 0; i < GRAPHS; i++) {
+            // sparse directed graphs condense into many components
+            int vertexCount = 2 + random.nextInt(120);
+            Set<Integer> vertices = new HashSet<>();
+            Set<Edge<Integer>> edges = new HashSet<>();
+            for (int v = 0; v < vertexCount; v++) {
+                vertices.add(v);
+            }
+            for (int e = random.nextInt(2 * vertexCount); e > 0; e--) {
+                edges.add(new DirectedEdge<>(random.nextInt(vertexCount), random.nextInt(vertexCount)));
+            }
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    new HashSet<>(edges));
+            for (Integer source : vertices) {
+                Set<Integer> reachable = reachableFrom(source, edges);
+                for (Integer destination : vertices) {
+                    assertEquals(source + " -> " + destination,
+                            source.equals(destination) || reachable.contains(destination),
+                            graph.isReachable(source, destination));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void snapshotMatchesReferenceTest() {
+        Random random = new Random(13);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    new HashSet<>(edges));
+            assertMatchesReference(random, SimpleGraphLib.getGraphFactory().createSnapshot(graph), vertices, edges);
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotIsImmutableTest() {
+        Graph<Integer> graph = SimpleGraphLib.getSynchronyzedGraphFactory().<Integer>createUndirectedGraph()
+                .addEdge(new UndirectedEdge<>(1, 2));
+        graph.snapshot().addVertex(3);
+    }
+
+    @Test
+    public void aStarMatchesDijkstraTest() {
+        Random random = new Random(21);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            Graph<Integer> graph = SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                    new HashSet<>(edges));
+            assertEquals(vertices, graph.vertexStream().collect(Collectors.toSet()));
+            assertEquals(vertices.size(), graph.traverse(v -> v, 4).size());
+            Graph<Integer> snapshot = graph.snapshot();
+            for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                Integer source = random.nextInt(vertices.size());
+                Integer destination = random.nextInt(vertices.size());
+                // admissible but inconsistent: a random share of the real remaining distance
+                Map<Integer, Integer> heuristic = new HashMap<>();
+                vertices.forEach(v -> heuristic.put(v,
+                        weightOf(graph.getPath(v, destination)) * random.nextInt(101) / 100));
+                int expected = weightOf(graph.getPath(source, destination));
+                for (Graph<Integer> g : Arrays.asList(graph, snapshot)) {
+                    List<Edge<Integer>> actual = g.getPath(source, destination, heuristic::get);
+                    assertValidPath(source, destination, actual);
+                    assertEquals(expected, weightOf(actual));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reusedQueryContextMatchesReferenceTest() {
+        Random random = new Random(61);
+        PathQueryContext context = new PathQueryContext();
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true, 1 + random.nextInt(200));
+            GraphFactory factory = random.nextBoolean() ? SimpleGraphLib.getGraphFactory()
+                    : SimpleGraphLib.getSynchronyzedGraphFactory();
+            Graph<Integer> graph = factory.createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            ShortestPathTree<Integer> tree = graph.getPathsFrom(0);
+            for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                Integer source = random.nextInt(vertices.size());
+                Integer destination = random.nextInt(vertices.size());
+                List<Edge<Integer>> expected = referencePath(vertices, edges, source, destination);
+                List<Edge<Integer>> actual = graph.getPath(source, destination, context);
+                assertValidPath(source, destination, actual);
+                assertEquals(weightOf(expected), weightOf(actual));
+                assertEquals(weightOf(expected), weightOf(graph.getPath(source, destination, (v -> 0))));
+            }
+            // trees keep their own buffers, later queries don't change them
+            for (Integer destination : vertices) {
+                assertEquals(weightOf(referencePath(vertices, edges, 0, destination)),
+                        weightOf(tree.getPathTo(destination)));
+            }
+        }
+    }
+
+    @Test
+    public void heuristicQueryingSameGraphTest() {
+        IntGraph intGraph = SimpleGraphLib.getGraphFactory().createIntDirectedGraph();
+        for (int v = 0; v < 20; v++) {
+            intGraph.addEdge(v, v + 1);
+        }
+        for (GraphFactory factory : Arrays.asList(SimpleGraphLib.getGraphFactory(),
+                SimpleGraphLib.getSynchronyzedGraphFactory(), SimpleGraphLib.getOffHeapGraphFactory())) {
+            Graph<Integer> graph = factory.createDirectedGraph();
+            for (int v = 0; v < 20; v++) {
+                graph.addEdge(new DirectedEdge<>(v, v + 1, 1));
+            }
+            for (Graph<Integer> g : Arrays.asList(graph, graph.snapshot(), intGraph.asGraph())) {
+                List<Edge<Integer>> path = g.getPath(0, 20, v -> g.getPath(5, 7).size() - 2);
+                assertValidPath(0, 20, path);
+                assertEquals(20, path.size());
+            }
+        }
+    }
+
+    @Test
+    public void asyncPathMatchesReferenceTest() throws Exception {
+        Random random = new Random(67);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            GraphFactory factory = random.nextBoolean() ? SimpleGraphLib.getGraphFactory()
+                    : SimpleGraphLib.getSynchronyzedGraphFactory();
+            Graph<Integer> graph = factory.createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                Integer source = random.nextInt(vertices.size());
+                Integer destination = random.nextInt(vertices.size());
+                List<Edge<Integer>> actual = graph.getPathAsync(source, destination).get();
+                assertValidPath(source, destination, actual);
+                assertEquals(weightOf(referencePath(vertices, edges, source, destination)), weightOf(actual));
+            }
+        }
+    }
+
+    @Test
+    public void identicalAsyncQueriesShareOneSearchTest() throws Exception {
+        for (GraphFactory factory : Arrays.asList(SimpleGraphLib.getGraphFactory(),
+                SimpleGraphLib.getSynchronyzedGraphFactory())) {
+            Graph<Integer> graph = factory.createDirectedGraph();
+            graph.addEdge(new DirectedEdge<>(0, 1, 2));
+            graph.addEdge(new DirectedEdge<>(1, 2, 3));
+            // holds the searches until every query is issued
+            List<Runnable> tasks = new ArrayList<>();
+            Executor executor = tasks::add;
+            CompletableFuture<List<Edge<Integer>>> first = graph.getPathAsync(0, 2, executor);
+            CompletableFuture<List<Edge<Integer>>> second = graph.getPathAsync(0, 2, executor);
+            CompletableFuture<List<Edge<Integer>>> other = graph.getPathAsync(0, 1, executor);
+            assertEquals(2, tasks.size());
+            tasks.forEach(Runnable::run);
+            assertEquals(first.get(), second.get());
+            assertFalse(first.get() == second.get());
+            assertEquals(5, weightOf(first.get()));
+            assertEquals(2, weightOf(other.get()));
+            // finished queries aren't shared any more
+            graph.getPathAsync(0, 2, executor);
+            assertEquals(3, tasks.size());
+        }
+    }
+
+    @Test
+    public void shortestPathTreeMatchesReferenceTest() {
+        Random random = new Random(33);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            Graph<Integer> graph = SimpleGraphLib.getSynchronyzedGraphFactory()
+                    .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+            for (Graph<Integer> g : Arrays.asList(graph, graph.snapshot())) {
+                Integer source = random.nextInt(vertices.size());
+                List<Integer> destinations = Arrays.asList(random.nextInt(vertices.size()),
+                        random.nextInt(vertices.size()));
+                ShortestPathTree<Integer> tree = g.getPathsFrom(source);
+                ShortestPathTree<Integer> partialTree = g.getPaths(source, destinations);
+                for (Integer destination : vertices) {
+                    List<Edge<Integer>> expected = referencePath(vertices, edges, source, destination);
+                    boolean reachable = !expected.isEmpty() || source.equals(destination);
+                    assertEquals(reachable, tree.hasPathTo(destination));
+                    assertEquals(reachable ? weightOf(expected) : Integer.MAX_VALUE, tree.getDistanceTo(destination));
+                    assertValidPath(source, destination, tree.getPathTo(destination));
+                    assertEquals(weightOf(expected), weightOf(tree.getPathTo(destination)));
+                    if (destinations.contains(destination)) {
+                        assertEquals(tree.getDistanceTo(destination), partialTree.getDistanceTo(destination));
+                        assertEquals(weightOf(expected), weightOf(partialTree.getPathTo(destination)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void deltaSteppingMatchesDijkstraTest() {
+        Random random = new Random(51);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // large enough for the frontiers to be split between the workers
+            Set<Integer> vertices = new HashSet<>();
+            Set<Edge<Integer>> edges = new HashSet<>();
+            for (int v = 0; v < 5000; v++) {
+                vertices.add(v);
+                for (int e = 0; e < 4; e++) {
+                    edges.add(new DirectedEdge<>(v, random.nextInt(5000), 1 + random.nextInt(100)));
+                }
+            }
+            CsrGraph<Integer> snapshot = (CsrGraph<Integer>) SimpleGraphLib.getGraphFactory()
+                    .createDirectedGraph(vertices, edges).snapshot();
+            for (int delta : new int[] { 1, 7, 25, 1000 }) {
+                Integer source = random.nextInt(vertices.size());
+                ShortestPathTree<Integer> expected = snapshot.getPathsFrom(source);
+                ShortestPathTree<Integer> actual = snapshot.getPathsFrom(source, pool, delta);
+                for (Integer destination : vertices) {
+                    assertEquals(expected.getDistanceTo(destination), actual.getDistanceTo(destination));
+                    assertValidPath(source, destination, actual.getPathTo(destination));
+                    assertEquals(weightOf(expected.getPathTo(destination)), weightOf(actual.getPathTo(destination)));
+                }
+                for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                    Integer destination = random.nextInt(vertices.size());
+                    List<Edge<Integer>> path = snapshot.getPath(source, destination, pool, delta);
+                    assertValidPath(source, destination, path);
+                    assertEquals(weightOf(expected.getPathTo(destination)), weightOf(path));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void batchQueryKeepsInputOrderTest() {
+        Random random = new Random(45);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 0; i < GRAPHS; i++) {
+                Set<Integer> vertices = randomVertices(random);
+                Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+                Graph<Integer> graph = SimpleGraphLib.getSynchronyzedGraphFactory()
+                        .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges));
+                List<Map.Entry<Integer, Integer>> pairs = new ArrayList<>();
+                for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                    pairs.add(new AbstractMap.SimpleEntry<>(random.nextInt(vertices.size()),
+                            random.nextInt(vertices.size())));
+                }
+                for (Graph<Integer> g : Arrays.asList(graph, graph.snapshot())) {
+                    List<List<Edge<Integer>>> paths = new BatchPathQuery<>(g, pool).getPaths(pairs);
+                    assertEquals(pairs.size(), paths.size());
+                    for (int q = 0; q < pairs.size(); q++) {
+                        Integer source = pairs.get(q).getKey();
+                        Integer destination = pairs.get(q).getValue();
+                        assertValidPath(source, destination, paths.get(q));
+                        assertEquals(weightOf(referencePath(vertices, edges, source, destination)),
+                                weightOf(paths.get(q)));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void foreignGraphDefaultsMatchReferenceTest() {
+        Random random = new Random(73);
+        for (int i = 0; i < GRAPHS; i++) {
+            Set<Integer> vertices = randomVertices(random);
+            Set<Edge<Integer>> edges = randomEdges(random, vertices, true);
+            Graph<Integer> graph = new PathOnlyGraph<>(SimpleGraphLib.getGraphFactory()
+                    .createDirectedGraph(new HashSet<>(vertices), new HashSet<>(edges)));
+            Graph<Integer> snapshot = graph.snapshot();
+            // untracked versions never repeat, so cached paths aren't reused
+            Graph<Integer> cached = new CachingGraph<>(graph, 16);
+            assertTrue(cached.getPath(0, vertices.size()).isEmpty());
+            graph.addEdge(new DirectedEdge<>(0, vertices.size(), 1));
+            assertTrue(graph.getVersion() < graph.getVersion());
+            assertEquals(1, cached.getPath(0, vertices.size()).size());
+            assertFalse(snapshot.isReachable(0, vertices.size()));
+            for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+                Integer source = random.nextInt(vertices.size());
+                Integer destination = random.nextInt(vertices.size());
+                int expected = weightOf(referencePath(vertices, edges, source, destination));
+                List<Edge<Integer>> actual = snapshot.getPath(source, destination);
+                assertValidPath(source, destination, actual);
+                assertEquals(expected, weightOf(actual));
+                actual = graph.getPath(source, destination, PathStrategy.BIDIRECTIONAL_DIJKSTRA);
+                assertValidPath(source, destination, actual);
+                assertEquals(expected, weightOf(actual));
+                actual = graph.getPath(source, destination, v -> 0);
+                assertValidPath(source, destination, actual);
+                assertEquals(expected, weightOf(actual));
+                ShortestPathTree<Integer> tree = graph.getPaths(source, Arrays.asList(destination));
+                assertEquals(expected, weightOf(tree.getPathTo(destination)));
+                assertEquals(tree.hasPathTo(destination) ? expected : Integer.MAX_VALUE,
+                        tree.getDistanceTo(destination));
+                assertEquals(source.equals(destination) || !actual.isEmpty(), tree.hasPathTo(destination));
+                assertEquals(expected, weightOf(graph.getPathsFrom(source).getPathTo(destination)));
+            }
+        }
+    }
+
+    @Test
+    public void queriedGraphsAreCollectedTest() throws Exception {
+        assertCollectedAfterQuery(() -> SimpleGraphLib.getGraphFactory().<Integer>createDirectedGraph()
+                .addEdge(new DirectedEdge<>(1, 2)).snapshot(), g -> assertEquals(1, g.getPath(1, 2).size()));
+        assertCollectedAfterQuery(() -> SimpleGraphLib.getOffHeapGraphFactory().<Integer>createDirectedGraph()
+                .addEdge(new DirectedEdge<>(1, 2)), g -> assertEquals(1, g.getPath(1, 2).size()));
+        assertCollectedAfterQuery(() -> SimpleGraphLib.getGraphFactory().createIntDirectedGraph().addEdge(1, 2),
+                g -> assertEquals(2, g.getPath(1, 2).length));
+        assertCollectedAfterQuery(
+                () -> SimpleGraphLib.getGraphFactory().createIntUndirectedGraph().addEdge(1, 2).snapshot(),
+                g -> assertEquals(2, g.getPath(1, 2).length));
+    }
+
+    /**
+     * Queries an object on the calling thread and drops it, the thread's search
+     * buffers mustn't keep it reachable
+     */
+
+    static <T> void assertCollectedAfterQuery(Supplier<T> objects, Consumer<T> query) throws InterruptedException {
+        T object = objects.get();
+        query.accept(object);
+        WeakReference<T> reference = new WeakReference<>(object);
+        object = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+    }
+
+    /**
+     * Graph of another library: implements what Graph required at first and
+     * relies on the defaults for the rest
+     */
+    static final class PathOnlyGraph<V> implements Graph<V> {
+
+        private final Graph<V> graph;
+
+        PathOnlyGraph(Graph<V> graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public Graph<V> addVertex(V vertex) {
+            graph.addVertex(vertex);
+            return this;
+        }
+
+        @Override
+        public Graph<V> addEdge(Edge<V> edge) {
+            graph.addEdge(edge);
+            return this;
+        }
+
+        @Override
+        public List<Edge<V>> getPath(V sourceVertex, V destinationVertex) {
+            return graph.getPath(sourceVertex, destinationVertex);
+        }
+
+        @Override
+        public List<?> traverse(Function<V, ?> function) {
+            return graph.traverse(function);
+        }
+
+    }
+
+    /**
+     * Edges listed by the graph are a subset of the original ones with the same
+     * shortest paths
+     */
+
+    private void assertListedEdgesKeepPaths(Random random, Graph<Integer> graph, Set<Integer> vertices,
+            Set<Edge<Integer>> edges) {
+        Set<Edge<Integer>> listed = new HashSet<>();
+        graph.forEachEdge(listed::add);
+        assertTrue(edges.containsAll(listed));
+        assertMatchesReference(random, SimpleGraphLib.getGraphFactory().createDirectedGraph(new HashSet<>(vertices),
+                listed), vertices, edges);
+    }
+
+    private void assertMatchesReference(Random random, Graph<Integer> graph, Set<Integer> vertices,
+            Set<Edge<Integer>> edges) {
+        for (int q = 0; q < QUERIES_PER_GRAPH; q++) {
+            Integer source = random.nextInt(vertices.size());
+            Integer destination = random.nextInt(vertices.size());
+            List<Edge<Integer>> expected = referencePath(vertices, edges, source, destination);
+            for (PathStrategy strategy : PathStrategy.values()) {
+                List<Edge<Integer>> actual = graph.getPath(source, destination, strategy);
+                assertValidPath(source, destination, actual);
+                assertEquals(strategy + " path " + source + " -> " + destination, weightOf(expected),
+                        weightOf(actual));
+                assertEquals(expected.isEmpty(), actual.isEmpty());
+            }
+            assertEquals(weightOf(expected), weightOf(graph.getPath(source, destination)));
+            assertEquals(source.equals(destination) || !expected.isEmpty(), graph.isReachable(source, destination));
+        }
+    }
+
+    static Set<Integer> randomVertices(Random random) {
+        Set<Integer> vertices = new HashSet<>();
+        int count = 2 + random.nextInt(40);
+        for (int v = 0; v < count; v++) {
+            vertices.add(v);
+        }
+        return vertices;
+    }
+
+    static Set<Edge<Integer>> randomEdges(Random random, Set<Integer> vertices, boolean mixed) {
+        return randomEdges(random, vertices, mixed, 20);
+    }
+
+    static Set<Edge<Integer>> randomEdges(Random random, Set<Integer> vertices, boolean mixed, int maxWeight) {
+        Set<Edge<Integer>> edges = new HashSet<>();
+        int count = random.nextInt(vertices.size() * 3);
+        for (int e = 0; e < count; e++) {
+            Integer source = random.nextInt(vertices.size());
+            Integer destination = random.nextInt(vertices.size());
+            int weight = 1 + random.nextInt(maxWeight);
+            edges.add(mixed && random.nextBoolean() ? new DirectedEdge<>(source, destination, weight)
+                    : new UndirectedEdge<>(source, destination, weight));
+        }
+        return edges;
+    }
+
+    private static Set<Integer> reachableFrom(Integer source, Set<Edge<Integer>> edges) {
+        Set<Integer> reachable = new HashSet<>();
+        List<Integer> queue = new ArrayList<>(Collections.singletonList(source));
+        for (int i = 0; i < queue.size(); i++) {
+            for (Edge<Integer> edge : edges) {
+                if (edge.getSource().equals(queue.get(i)) && reachable.add(edge.getDestination())) {
+                    queue.add(edge.getDestination());
+                }
+            }
+        }
+        return reachable;
+    }
+
+    static <V> void assertValidPath(V source, V destination, List<Edge<V>> path) {
+        V current = source;
+        for (Edge<V> edge : path) {
+            assertTrue(edge + " doesn't leave " + current, edge.connectsVertices(current, edge.getOtherVertex(current)));
+            current = edge.getOtherVertex(current);
+        }
+        if (!path.isEmpty()) {
+            assertEquals(destination, current);
+        }
+    }
+
+    static <V> int weightOf(List<Edge<V>> path) {
+        return path.stream().mapToInt(Edge::getWeight).sum();
+    }
+
+    /**
+     * The scan-based implementation getPath used to have, with unreachable
+     * vertices no longer relaxing their neighbours.
+     */
+    static <V> List<Edge<V>> referencePath(Set<V> vertices, Set<Edge<V>> edges, V sourceVertex,
+            V destinationVertex) {
+        List<Edge<V>> result = new ArrayList<>();
+        if (sourceVertex.equals(destinationVertex)) {
+            return result;
+        }
+        Set<V> unvisitedVertices = new HashSet<>(vertices);
+        Map<V, Integer> verticesDistances = new HashMap<>();
+        Map<V, Edge<V>> previousEdges = new HashMap<>();
+        vertices.forEach(v -> verticesDistances.put(v, Integer.MAX_VALUE));
+        verticesDistances.put(sourceVertex, 0);
+
+        while (!unvisitedVertices.isEmpty()) {
+            V current = Collections.min(unvisitedVertices,
+                    (e1, e2) -> Integer.compare(verticesDistances.get(e1), verticesDistances.get(e2)));
+            if (current.equals(destinationVertex) || verticesDistances.get(current) == Integer.MAX_VALUE)
+                break;
+            unvisitedVertices.remove(current);
+            for (Edge<V> edge : edges) {
+                if (!edge.startsAt(current) || !edge.connectsVertices(current, edge.getOtherVertex(current)))
+                    continue;
+                V neighbour = edge.getOtherVertex(current);
+                int distance = verticesDistances.get(current) + edge.getWeight();
+                if (unvisitedVertices.contains(neighbour) && distance < verticesDistances.get(neighbour)) {
+                    verticesDistances.put(neighbour, distance);
+                    previousEdges.put(neighbour, edge);
+                }
+            }
+        }
+
+        V v = destinationVertex;
+        while (previousEdges.containsKey(v)) {
+            Edge<V> edge = previousEdges.get(v);
+            result.add(0, edge);
+            v = edge.getOtherVertex(v);
+        }
+        if (!v.equals(sourceVertex)) {
+            result.clear();
+        }
+        return result;
+    }
+
+}